@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.testbench.uiunittest.testers.GridTester;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+/**
+ * Cost of the GridTester operations on grids with different number of rows.
+ * The operations target the middle row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridBenchmark {
+
+    @Param({ "100", "10000", "100000" })
+    public int rows;
+
+    private Harness harness;
+    private GridTester<Integer> tester;
+    private int row;
+
+    @Setup
+    public void setup() throws ServiceException {
+        harness = new Harness();
+        UI ui = harness.mockVaadin();
+        List<Integer> items = IntStream.range(0, rows).boxed()
+                .collect(Collectors.toList());
+        Grid<Integer> grid = new Grid<>();
+        grid.addColumn(i -> i).setCaption("Value");
+        grid.addColumn(i -> "Text " + i).setCaption("Text");
+        grid.addComponentColumn(i -> new Label("Label " + i))
+                .setCaption("Component");
+        grid.setItems(items);
+        ui.setContent(grid);
+        tester = harness.test(grid);
+        row = rows / 2;
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.tearDown();
+    }
+
+    @Benchmark
+    public Object cell() {
+        return tester.cell(1, row);
+    }
+
+    @Benchmark
+    public Object componentCell() {
+        return tester.cell(2, row);
+    }
+
+    @Benchmark
+    public Integer item() {
+        return tester.item(row);
+    }
+
+    @Benchmark
+    public int size() {
+        return tester.size();
+    }
+
+    @Benchmark
+    public void click() {
+        tester.click(0, row);
+    }
+}
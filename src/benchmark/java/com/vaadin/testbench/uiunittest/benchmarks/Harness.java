@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.benchmarks;
+
+import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * UIUnitTest used by the benchmarks to mock the Vaadin environment and to
+ * query and test components outside JUnit.
+ */
+public class Harness extends UIUnitTest {
+
+    /**
+     * Create a component tree with the given number of labels in rows of ten
+     * labels. The last label has id "last".
+     *
+     * @param size
+     *            The number of labels
+     * @return The root layout
+     */
+    public static Component createTree(int size) {
+        VerticalLayout root = new VerticalLayout();
+        HorizontalLayout row = null;
+        for (int i = 0; i < size; i++) {
+            if (i % 10 == 0) {
+                row = new HorizontalLayout();
+                root.addComponent(row);
+            }
+            Label label = new Label("Label " + i);
+            if (i == size - 1) {
+                label.setId("last");
+            }
+            row.addComponent(label);
+        }
+        return root;
+    }
+}
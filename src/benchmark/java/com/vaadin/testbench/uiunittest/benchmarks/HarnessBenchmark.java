@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.testbench.uiunittest.TestUI;
+import com.vaadin.testbench.uiunittest.views.BinderTestView;
+import com.vaadin.testbench.uiunittest.views.GridTestView;
+import com.vaadin.testbench.uiunittest.views.TreeGridTestView;
+import com.vaadin.ui.UI;
+
+/**
+ * Cost of the set up and tear down of a test with the test UI navigated to
+ * the given view.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HarnessBenchmark {
+
+    @Param({ "", GridTestView.NAME, TreeGridTestView.NAME,
+            BinderTestView.NAME })
+    public String view;
+
+    private Harness harness;
+
+    @Setup
+    public void setup() {
+        harness = new Harness();
+    }
+
+    @Benchmark
+    public UI mockVaadinAndTearDown() throws ServiceException {
+        TestUI ui = new TestUI();
+        harness.mockVaadin(ui);
+        ui.navigate(view);
+        harness.tearDown();
+        return ui;
+    }
+}
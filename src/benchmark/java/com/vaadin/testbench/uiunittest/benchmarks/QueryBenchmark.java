@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+/**
+ * Cost of the component queries on trees of different sizes, with and without
+ * the component index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean indexed;
+
+    private Harness harness;
+
+    @Setup
+    public void setup() throws ServiceException {
+        harness = new Harness();
+        UI ui = harness.mockVaadin();
+        ui.setContent(Harness.createTree(size));
+        if (indexed) {
+            harness.enableComponentIndex();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        harness.tearDown();
+    }
+
+    @Benchmark
+    public int all() {
+        return harness.$(Label.class).size();
+    }
+
+    @Benchmark
+    public Label first() {
+        return harness.$(Label.class).first();
+    }
+
+    @Benchmark
+    public Label id() {
+        return harness.$(Label.class).id("last");
+    }
+}
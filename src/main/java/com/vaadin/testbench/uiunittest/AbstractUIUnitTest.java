@@ -9,16 +9,35 @@
 package com.vaadin.testbench.uiunittest;
 
 import java.io.Serializable;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.temporal.Temporal;
 import java.time.temporal.TemporalAdjuster;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.vaadin.testbench.uiunittest.metrics.Metrics;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
+import com.vaadin.testbench.uiunittest.metrics.MetricsListener;
+import com.vaadin.testbench.uiunittest.mocks.MockVaadinSession;
 import com.vaadin.testbench.uiunittest.testers.AbstractDateFieldTester;
 import com.vaadin.testbench.uiunittest.testers.AbstractFieldTester;
 import com.vaadin.testbench.uiunittest.testers.AbstractMultiSelectTester;
@@ -62,6 +81,9 @@ import com.vaadin.ui.Window;
 @SuppressWarnings({ "java:S4274", "java:S100" })
 public abstract class AbstractUIUnitTest {
 
+    private ComponentIndex componentIndex;
+    private VirtualTimeScheduler virtualTimeScheduler;
+
     /**
      * Create mocked Vaadin environment with blank UI without Atmosphere
      * support. This is enough for common use cases testing standalone server
@@ -112,15 +134,17 @@ public abstract class AbstractUIUnitTest {
      */
     @SuppressWarnings("unchecked")
     public <T> T navigate(String name, Class<T> clazz) {
-        assert (name != null);
-        assert (clazz != null);
-        assert (UI.getCurrent() != null) : "UI has not been setup";
-        Navigator nav = UI.getCurrent().getNavigator();
-        assert (nav != null) : "Navigator does not exists";
-        nav.navigateTo(name);
-        View view = nav.getCurrentView();
-        assert (view.getClass().equals(clazz));
-        return (T) view;
+        try (Measurement measurement = Metrics.measure("navigate")) {
+            assert (name != null);
+            assert (clazz != null);
+            assert (UI.getCurrent() != null) : "UI has not been setup";
+            Navigator nav = UI.getCurrent().getNavigator();
+            assert (nav != null) : "Navigator does not exists";
+            nav.navigateTo(name);
+            View view = nav.getCurrentView();
+            assert (view.getClass().equals(clazz));
+            return (T) view;
+        }
     }
 
     /**
@@ -165,34 +189,159 @@ public abstract class AbstractUIUnitTest {
      *            Component class
      * @return QueryResult of components
      */
-    @SuppressWarnings("unchecked")
     public <T extends ClientConnector> QueryResult<T> $(HasComponents container,
             Class<T> clazz) {
         assert (container != null && clazz != null);
-        QueryResult<T> result = new QueryResult<>();
-        Iterator<Component> iter = container.iterator();
-        if (container instanceof Grid) {
-            @SuppressWarnings("rawtypes")
-            Grid grid = (Grid) container;
-            if (grid.getEditor().getBinder() != null) {
-                List<T> fields = (List<T>) grid.getEditor().getBinder()
-                        .getFields()
-                        .filter(field -> clazz
-                                .isAssignableFrom(field.getClass()))
-                        .collect(Collectors.toList());
-                result.addAll(fields);
-            }
+        HasComponents root = current(container);
+        ComponentIndex index = getComponentIndex();
+        if (index != null && index.getUI() == root) {
+            return new QueryResult<>(index, clazz, component -> true);
         }
-        while (iter.hasNext()) {
-            Component component = iter.next();
-            if (clazz.isAssignableFrom(component.getClass())) {
-                result.add((T) component);
-            }
-            if (component instanceof HasComponents) {
-                result.addAll($((HasComponents) component, clazz));
+        return new QueryResult<>(() -> new ComponentIterator<>(root, clazz),
+                clazz);
+    }
+
+    /**
+     * Get the instance of the connector in the current UI. Returns the given
+     * connector by default, the session round trip mode of
+     * {@link UIUnitTest} uses this to resolve connectors of a replaced UI to
+     * their copies.
+     *
+     * @param <T>
+     *            Connector type
+     * @param connector
+     *            The connector
+     * @return The connector in the current UI
+     */
+    protected <T extends ClientConnector> T current(T connector) {
+        return connector;
+    }
+
+    /**
+     * Enable the component index for the current UI. When enabled, component
+     * queries targeting the whole UI are served from an index which is kept up
+     * to date by component attach and detach events instead of traversing the
+     * component tree on every query. This is useful with large views.
+     *
+     * @see ComponentIndex
+     * @see #disableComponentIndex()
+     */
+    public void enableComponentIndex() {
+        assert (UI.getCurrent() != null) : "UI has not been setup";
+        disableComponentIndex();
+        componentIndex = new ComponentIndex(UI.getCurrent());
+    }
+
+    /**
+     * Disable the component index and stop tracking the component tree.
+     *
+     * @see #enableComponentIndex()
+     */
+    public void disableComponentIndex() {
+        if (componentIndex != null) {
+            componentIndex.close();
+            componentIndex = null;
+        }
+    }
+
+    /**
+     * Get the component index of the current UI if it is enabled.
+     *
+     * @return ComponentIndex, null if index is not enabled for the current UI
+     */
+    protected ComponentIndex getComponentIndex() {
+        if (componentIndex == null
+                || componentIndex.getUI() != UI.getCurrent()) {
+            return null;
+        }
+        return componentIndex;
+    }
+
+    /**
+     * Set the metrics listener which records the durations of the test phases
+     * in the current thread: mockVaadin, restoreSnapshot, tearDown, navigate,
+     * query, wait and advanceTime, and of each tester method, e.g.
+     * "GridTester.click". Set it before mockVaadin to record the set up as
+     * well. The listener is removed when the test is torn down.
+     *
+     * @see com.vaadin.testbench.uiunittest.metrics.TimingMetrics
+     *
+     * @param listener
+     *            The listener, null to disable metrics
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        Metrics.setListener(listener);
+    }
+
+    /**
+     * Get the metrics listener of the current thread.
+     *
+     * @return The listener, null if metrics are disabled
+     */
+    public MetricsListener getMetricsListener() {
+        return Metrics.getListener();
+    }
+
+    /**
+     * Get the virtual time scheduler of the test, create it if it does not
+     * exist. Wire the application to use it as ScheduledExecutorService or
+     * Executor, and its {@link VirtualTimeScheduler#getClock()} as Clock, to
+     * test asynchronous logic without waiting real time.
+     *
+     * @see #advanceTime(Duration)
+     *
+     * @return VirtualTimeScheduler instance
+     */
+    public VirtualTimeScheduler getVirtualTimeScheduler() {
+        if (virtualTimeScheduler == null) {
+            virtualTimeScheduler = new VirtualTimeScheduler();
+        }
+        return virtualTimeScheduler;
+    }
+
+    /**
+     * Get the virtual clock of the test.
+     *
+     * @see #getVirtualTimeScheduler()
+     * @see #advanceTime(Duration)
+     *
+     * @return Clock which moves only when the time is advanced
+     */
+    public Clock getVirtualClock() {
+        return getVirtualTimeScheduler().getClock();
+    }
+
+    /**
+     * Advance the virtual time and run the tasks of the virtual time scheduler
+     * which become due, synchronously on the test thread. After that the
+     * pending UI.access tasks, e.g. those submitted by the run tasks, are run
+     * as well.
+     *
+     * @see #getVirtualTimeScheduler()
+     *
+     * @param duration
+     *            The duration, not negative
+     */
+    public void advanceTime(Duration duration) {
+        try (Measurement measurement = Metrics.measure("advanceTime")) {
+            assert (duration != null);
+            getVirtualTimeScheduler().advanceTime(duration);
+            VaadinSession session = VaadinSession.getCurrent();
+            if (session != null && session.hasLock()) {
+                session.getService().runPendingAccessTasks(session);
             }
         }
-        return result;
+    }
+
+    /**
+     * Shut down the virtual time scheduler, if it has been created, and discard
+     * its queued tasks.
+     */
+    protected void resetVirtualTime() {
+        if (virtualTimeScheduler != null) {
+            virtualTimeScheduler.shutdownNow();
+            virtualTimeScheduler = null;
+        }
     }
 
     /**
@@ -204,7 +353,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public ButtonTester test(Button component) {
-        return new ButtonTester(component);
+        return new ButtonTester(current(component));
     }
 
     /**
@@ -216,7 +365,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public <T> ComboBoxTester<T> test(ComboBox<T> component) {
-        return new ComboBoxTester<>(component);
+        return new ComboBoxTester<>(current(component));
     }
 
     /**
@@ -229,7 +378,7 @@ public abstract class AbstractUIUnitTest {
      */
     public <T extends Temporal & TemporalAdjuster & Serializable & Comparable<? super T>, R extends Enum<R>> AbstractDateFieldTester<T, R> test(
             AbstractDateField<T, R> component) {
-        return new AbstractDateFieldTester<>(component);
+        return new AbstractDateFieldTester<>(current(component));
     }
 
     /**
@@ -241,7 +390,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public TabSheetTester test(TabSheet component) {
-        return new TabSheetTester(component);
+        return new TabSheetTester(current(component));
     }
 
     /**
@@ -253,7 +402,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public <T> GridTester<T> test(Grid<T> component) {
-        return new GridTester<>(component);
+        return new GridTester<>(current(component));
     }
 
     /**
@@ -265,7 +414,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public <T> TreeGridTester<T> test(TreeGrid<T> component) {
-        return new TreeGridTester<>(component);
+        return new TreeGridTester<>(current(component));
     }
 
     /**
@@ -277,7 +426,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public <T> AbstractFieldTester<T> test(AbstractField<T> component) {
-        return new AbstractFieldTester<>(component);
+        return new AbstractFieldTester<>(current(component));
     }
 
     /**
@@ -290,7 +439,7 @@ public abstract class AbstractUIUnitTest {
      */
     public <T> AbstractSingleSelectTester<T> test(
             AbstractSingleSelect<T> component) {
-        return new AbstractSingleSelectTester<>(component);
+        return new AbstractSingleSelectTester<>(current(component));
     }
 
     /**
@@ -303,7 +452,7 @@ public abstract class AbstractUIUnitTest {
      */
     public <T> AbstractMultiSelectTester<T> test(
             AbstractMultiSelect<T> component) {
-        return new AbstractMultiSelectTester<>(component);
+        return new AbstractMultiSelectTester<>(current(component));
     }
 
     /**
@@ -315,7 +464,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public MenuBarTester test(MenuBar component) {
-        return new MenuBarTester(component);
+        return new MenuBarTester(current(component));
     }
 
     /**
@@ -327,7 +476,7 @@ public abstract class AbstractUIUnitTest {
      * @return Tester for operations
      */
     public ComponentTester test(AbstractComponent component) {
-        return new ComponentTester(component);
+        return new ComponentTester(current(component));
     }
 
     /**
@@ -361,23 +510,30 @@ public abstract class AbstractUIUnitTest {
      */
     @Deprecated
     public <T> void waitWhile(T param, Predicate<T> condition, int timeout) {
-        assert (param != null);
-        assert (condition != null);
-        assert (VaadinSession.getCurrent().hasLock());
-        timeout = timeout * 10;
-        VaadinSession.getCurrent().unlock();
-        try {
-            int i = 0;
-            do {
-                try {
-                    Thread.sleep(100);
-                    i++;
-                } catch (InterruptedException e) {
-                    // Ignore
-                }
-            } while (testWaitCondition(param, condition) && i < timeout);
-        } finally {
-            VaadinSession.getCurrent().lock();
+        try (Measurement measurement = Metrics.measure("wait")) {
+            assert (param != null);
+            assert (condition != null);
+            assert (VaadinSession.getCurrent().hasLock());
+            if (VaadinSession.getCurrent() instanceof MockVaadinSession) {
+                ((MockVaadinSession) VaadinSession.getCurrent()).await(
+                        () -> !condition.test(param), timeout, TimeUnit.SECONDS);
+                return;
+            }
+            timeout = timeout * 10;
+            VaadinSession.getCurrent().unlock();
+            try {
+                int i = 0;
+                do {
+                    try {
+                        Thread.sleep(100);
+                        i++;
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    }
+                } while (testWaitCondition(param, condition) && i < timeout);
+            } finally {
+                VaadinSession.getCurrent().lock();
+            }
         }
     }
 
@@ -402,8 +558,11 @@ public abstract class AbstractUIUnitTest {
      * Utility method that waits while condition is true. Unlocks the mocked
      * session and returns lock after wait ends. This is useful when waiting
      * background thread activity to complete and letting ui.access to happen.
+     * The condition is re-evaluated whenever a background thread has released
+     * the session lock, so the wait ends as soon as the condition changes.
      *
      * @see UI#access(Runnable)
+     * @see MockVaadinSession#await(BooleanSupplier, long, TimeUnit)
      * @see #waitWhile(BooleanSupplier)
      * @see #waitUntil(BooleanSupplier, int)
      * @see #waitUntil(BooleanSupplier)
@@ -414,22 +573,30 @@ public abstract class AbstractUIUnitTest {
      *            Wait maximum seconds
      */
     public void waitWhile(BooleanSupplier condition, int timeout) {
-        assert (condition != null);
-        assert (VaadinSession.getCurrent().hasLock());
-        timeout = timeout * 10;
-        VaadinSession.getCurrent().unlock();
-        try {
-            int i = 0;
-            do {
-                try {
-                    Thread.sleep(100);
-                    i++;
-                } catch (InterruptedException e) {
-                    // Ignore
-                }
-            } while (testWaitCondition(condition) && i < timeout);
-        } finally {
-            VaadinSession.getCurrent().lock();
+        try (Measurement measurement = Metrics.measure("wait")) {
+            assert (condition != null);
+            assert (VaadinSession.getCurrent().hasLock());
+            if (VaadinSession.getCurrent() instanceof MockVaadinSession) {
+                ((MockVaadinSession) VaadinSession.getCurrent()).await(
+                        () -> !condition.getAsBoolean(), timeout,
+                        TimeUnit.SECONDS);
+                return;
+            }
+            timeout = timeout * 10;
+            VaadinSession.getCurrent().unlock();
+            try {
+                int i = 0;
+                do {
+                    try {
+                        Thread.sleep(100);
+                        i++;
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    }
+                } while (testWaitCondition(condition) && i < timeout);
+            } finally {
+                VaadinSession.getCurrent().lock();
+            }
         }
     }
 
@@ -454,9 +621,11 @@ public abstract class AbstractUIUnitTest {
      * Utility method that waits until condition is true. Unlocks the mocked
      * session and returns lock after wait ends. This is useful when waiting
      * background thread activity to complete and letting ui.access to happen.
+     * The condition is re-evaluated whenever a background thread has released
+     * the session lock, so the wait ends as soon as the condition changes.
      *
      * @see UI#access(Runnable)
-     * @see #waitUntil(BooleanSupplier, int)
+     * @see MockVaadinSession#await(BooleanSupplier, long, TimeUnit)
      * @see #waitWhile(BooleanSupplier)
      * @see #waitWhile(BooleanSupplier, int)
      *
@@ -466,22 +635,29 @@ public abstract class AbstractUIUnitTest {
      *            Wait maximum seconds
      */
     public void waitUntil(BooleanSupplier condition, int timeout) {
-        assert (condition != null);
-        assert (VaadinSession.getCurrent().hasLock());
-        timeout = timeout * 10;
-        VaadinSession.getCurrent().unlock();
-        try {
-            int i = 0;
-            while (!testWaitCondition(condition) && i < timeout) {
-                try {
-                    Thread.sleep(100);
-                    i++;
-                } catch (InterruptedException e) {
-                    // Ignore
+        try (Measurement measurement = Metrics.measure("wait")) {
+            assert (condition != null);
+            assert (VaadinSession.getCurrent().hasLock());
+            if (VaadinSession.getCurrent() instanceof MockVaadinSession) {
+                ((MockVaadinSession) VaadinSession.getCurrent()).await(condition,
+                        timeout, TimeUnit.SECONDS);
+                return;
+            }
+            timeout = timeout * 10;
+            VaadinSession.getCurrent().unlock();
+            try {
+                int i = 0;
+                while (!testWaitCondition(condition) && i < timeout) {
+                    try {
+                        Thread.sleep(100);
+                        i++;
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    }
                 }
+            } finally {
+                VaadinSession.getCurrent().lock();
             }
-        } finally {
-            VaadinSession.getCurrent().lock();
         }
     }
 
@@ -514,6 +690,22 @@ public abstract class AbstractUIUnitTest {
 
     /**
      * Result type for component searches.
+     * <p>
+     * The result is deferred: the component tree is not traversed when the
+     * query is created. The query is started by the first method call and is
+     * never run again, the matching components are collected into the list
+     * as far as needed. Thus {@link #first()}, {@link #single()},
+     * {@link #id(String)}, {@link #caption(String)} and
+     * {@link #styleName(String)} stop as soon as the answer is known, e.g.
+     * single() stops at the second match, and the other List methods
+     * continue from where the previous call stopped. Every container is
+     * traversed with a copy of its children taken when the query reaches it.
+     * <p>
+     * With the component index, {@link #id(String)}, {@link #single()},
+     * {@link #caption(String)} and {@link #styleName(String)} are answered
+     * from the index if the query has not been started yet, and id() and
+     * single() do not order the components by their position in the
+     * component tree.
      *
      * @see #$(Class)
      * @see #$(HasComponents, Class)
@@ -526,12 +718,46 @@ public abstract class AbstractUIUnitTest {
             extends ArrayList<T> {
         private static final String NO_CLASS_MATCHES = "No class matches";
 
+        private transient Supplier<Iterator<T>> source;
+        private transient Iterator<T> matches;
+        private final transient ComponentIndex index;
+        private final transient Class<T> type;
+        private final transient Predicate<Component> filter;
+
         public QueryResult(Collection<T> list) {
             super(list);
+            index = null;
+            type = null;
+            filter = null;
         }
 
         public QueryResult() {
             super();
+            index = null;
+            type = null;
+            filter = null;
+        }
+
+        QueryResult(Supplier<Iterator<T>> source, Class<T> type) {
+            super();
+            this.source = source;
+            this.index = null;
+            this.type = type;
+            this.filter = null;
+        }
+
+        QueryResult(ComponentIndex index, Class<T> type,
+                Predicate<Component> filter) {
+            super();
+            this.source = () -> index.find(type, filter, true).iterator();
+            this.index = index;
+            this.type = type;
+            this.filter = filter;
+        }
+
+        // The index answers only queries which have not been started
+        private boolean indexed() {
+            return index != null && source != null;
         }
 
         /**
@@ -546,20 +772,32 @@ public abstract class AbstractUIUnitTest {
          *             if more than one component is found with the given id
          */
         public T id(String id) {
-            if (isEmpty()) {
-                Utils.printComponentTree();
-                throw new AssertionError(NO_CLASS_MATCHES);
-            }
-            List<T> matching = stream()
-                    .filter(c -> ((Component) c).getId() != null
-                            && ((Component) c).getId().equals(id))
-                    .collect(Collectors.toList());
-            if (matching.size() > 1) {
-                Utils.printComponentTree();
-                throw new AssertionError(
-                        "There are more than one component with id " + id);
+            try (Measurement measurement = Metrics.measure("query")) {
+                List<T> matching;
+                boolean noClassMatches;
+                if (indexed()) {
+                    matching = index.findById(type, id);
+                    matching.removeIf(c -> !filter.test((Component) c));
+                    noClassMatches = matching.isEmpty()
+                            && index.find(type, filter, false).isEmpty();
+                } else {
+                    matching = query()
+                            .filter(c -> ((Component) c).getId() != null
+                                    && ((Component) c).getId().equals(id))
+                            .limit(2).collect(Collectors.toList());
+                    noClassMatches = matching.isEmpty() && isEmpty();
+                }
+                if (noClassMatches) {
+                    Utils.printComponentTree();
+                    throw new AssertionError(NO_CLASS_MATCHES);
+                }
+                if (matching.size() > 1) {
+                    Utils.printComponentTree();
+                    throw new AssertionError(
+                            "There are more than one component with id " + id);
+                }
+                return matching.isEmpty() ? null : matching.get(0);
             }
-            return matching.isEmpty() ? null : matching.get(0);
         }
 
         /**
@@ -571,15 +809,8 @@ public abstract class AbstractUIUnitTest {
          * @return Result set of components
          */
         public QueryResult<T> styleName(String styleName) {
-            if (isEmpty()) {
-                Utils.printComponentTree();
-                throw new AssertionError(NO_CLASS_MATCHES);
-            }
-            return new QueryResult<>(stream()
-                    .filter(c -> ((Component) c).getStyleName() == null ? false
-                            : ((Component) c).getStyleName()
-                                    .contains(styleName))
-                    .collect(Collectors.toList()));
+            return refine(c -> c.getStyleName() == null ? false
+                    : c.getStyleName().contains(styleName));
         }
 
         /**
@@ -591,14 +822,23 @@ public abstract class AbstractUIUnitTest {
          * @return Result set of components
          */
         public QueryResult<T> caption(String caption) {
-            if (isEmpty()) {
+            return refine(c -> c.getCaption() == null ? false
+                    : c.getCaption().contains(caption));
+        }
+
+        private QueryResult<T> refine(Predicate<Component> condition) {
+            if (indexed() ? index.find(type, filter, false).isEmpty()
+                    : isEmpty()) {
                 Utils.printComponentTree();
                 throw new AssertionError(NO_CLASS_MATCHES);
             }
-            return new QueryResult<>(stream()
-                    .filter(c -> ((Component) c).getCaption() == null ? false
-                            : ((Component) c).getCaption().contains(caption))
-                    .collect(Collectors.toList()));
+            if (indexed()) {
+                return new QueryResult<>(index, type,
+                        filter.and(condition));
+            }
+            return new QueryResult<>(() -> query()
+                    .filter(c -> condition.test((Component) c)).iterator(),
+                    type);
         }
 
         /**
@@ -609,10 +849,9 @@ public abstract class AbstractUIUnitTest {
          * @return Component, null if the list was empty.
          */
         public T first() {
-            if (isEmpty()) {
-                return null;
+            try (Measurement measurement = Metrics.measure("query")) {
+                return fetch(1) ? super.get(0) : null;
             }
-            return get(0);
         }
 
         /**
@@ -621,10 +860,8 @@ public abstract class AbstractUIUnitTest {
          * @return Component, null if the list was empty.
          */
         public T last() {
-            if (isEmpty()) {
-                return null;
-            }
-            return get(size() - 1);
+            materialize();
+            return super.isEmpty() ? null : super.get(super.size() - 1);
         }
 
         /**
@@ -634,14 +871,345 @@ public abstract class AbstractUIUnitTest {
          * @return Component.
          */
         public T single() {
-            if (isEmpty()) {
-                Utils.printComponentTree();
-                throw new AssertionError("There are were no matches");
-            } else if (size() > 1) {
-                Utils.printComponentTree();
-                throw new AssertionError("There are more than one components");
+            try (Measurement measurement = Metrics.measure("query")) {
+                if (indexed()) {
+                    List<T> matching = index.find(type, filter, false);
+                    if (matching.size() == 1) {
+                        // The only match is the complete result
+                        source = null;
+                        super.add(matching.get(0));
+                    }
+                }
+                fetch(2);
+                if (super.isEmpty()) {
+                    Utils.printComponentTree();
+                    throw new AssertionError("There are were no matches");
+                } else if (super.size() > 1) {
+                    Utils.printComponentTree();
+                    throw new AssertionError("There are more than one components");
+                }
+                return super.get(0);
+            }
+        }
+
+        // Streams the result, collecting matches only as far as consumed
+        private Stream<T> query() {
+            Iterator<T> iter = new Iterator<T>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return fetch(next + 1);
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return QueryResult.super.get(next++);
+                }
+            };
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                    iter, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        }
+
+        // Starts the query on first call and collects matches until there are
+        // at least count of them or the query is exhausted
+        private boolean fetch(int count) {
+            if (source != null) {
+                matches = source.get();
+                source = null;
+            }
+            if (matches != null) {
+                while (super.size() < count && matches.hasNext()) {
+                    super.add(matches.next());
+                }
+                if (!matches.hasNext()) {
+                    matches = null;
+                }
+            }
+            return super.size() >= count;
+        }
+
+        private void materialize() {
+            if (source != null || matches != null) {
+                try (Measurement measurement = Metrics.measure("query")) {
+                    fetch(Integer.MAX_VALUE);
+                }
+            }
+        }
+
+        private Object writeReplace() {
+            materialize();
+            return this;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !fetch(1);
+        }
+
+        @Override
+        public int size() {
+            materialize();
+            return super.size();
+        }
+
+        @Override
+        public T get(int index) {
+            materialize();
+            return super.get(index);
+        }
+
+        @Override
+        public T set(int index, T element) {
+            materialize();
+            return super.set(index, element);
+        }
+
+        @Override
+        public boolean add(T e) {
+            materialize();
+            return super.add(e);
+        }
+
+        @Override
+        public void add(int index, T element) {
+            materialize();
+            super.add(index, element);
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends T> c) {
+            materialize();
+            return super.addAll(c);
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends T> c) {
+            materialize();
+            return super.addAll(index, c);
+        }
+
+        @Override
+        public T remove(int index) {
+            materialize();
+            return super.remove(index);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            materialize();
+            return super.remove(o);
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            materialize();
+            return super.removeAll(c);
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            materialize();
+            return super.retainAll(c);
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super T> filter) {
+            materialize();
+            return super.removeIf(filter);
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<T> operator) {
+            materialize();
+            super.replaceAll(operator);
+        }
+
+        @Override
+        public void sort(Comparator<? super T> c) {
+            materialize();
+            super.sort(c);
+        }
+
+        @Override
+        public void clear() {
+            source = null;
+            matches = null;
+            super.clear();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            materialize();
+            return super.contains(o);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            materialize();
+            return super.indexOf(o);
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            materialize();
+            return super.lastIndexOf(o);
+        }
+
+        @Override
+        public Object[] toArray() {
+            materialize();
+            return super.toArray();
+        }
+
+        @Override
+        public <E> E[] toArray(E[] a) {
+            materialize();
+            return super.toArray(a);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            materialize();
+            return super.iterator();
+        }
+
+        @Override
+        public ListIterator<T> listIterator() {
+            materialize();
+            return super.listIterator();
+        }
+
+        @Override
+        public ListIterator<T> listIterator(int index) {
+            materialize();
+            return super.listIterator(index);
+        }
+
+        @Override
+        public List<T> subList(int fromIndex, int toIndex) {
+            materialize();
+            return super.subList(fromIndex, toIndex);
+        }
+
+        @Override
+        public void forEach(Consumer<? super T> action) {
+            materialize();
+            super.forEach(action);
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            materialize();
+            return super.spliterator();
+        }
+
+        @Override
+        public void trimToSize() {
+            materialize();
+            super.trimToSize();
+        }
+
+        @Override
+        public Object clone() {
+            materialize();
+            return super.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            materialize();
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            materialize();
+            return super.hashCode();
+        }
+    }
+
+    /**
+     * Depth first iterator over the components of given type within a
+     * container. The order is the same as in recursive traversal, Grid editor
+     * fields are returned before the other components of the Grid.
+     *
+     * @param <T>
+     *            Component type
+     */
+    private static class ComponentIterator<T> implements Iterator<T> {
+        private final Class<T> clazz;
+        private final Deque<Iterator<Component>> stack = new ArrayDeque<>();
+        private final Deque<T> ready = new ArrayDeque<>();
+        private T next;
+
+        ComponentIterator(HasComponents container, Class<T> clazz) {
+            this.clazz = clazz;
+            enter(container);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void enter(HasComponents container) {
+            if (container instanceof Grid) {
+                @SuppressWarnings("rawtypes")
+                Grid grid = (Grid) container;
+                if (grid.getEditor().getBinder() != null) {
+                    List<T> fields = (List<T>) grid.getEditor().getBinder()
+                            .getFields()
+                            .filter(field -> clazz
+                                    .isAssignableFrom(field.getClass()))
+                            .collect(Collectors.toList());
+                    ready.addAll(fields);
+                }
+            }
+            // The children are copied, so that changes of the container do not
+            // affect a query which continues later
+            List<Component> children = new ArrayList<>();
+            container.iterator().forEachRemaining(children::add);
+            stack.push(children.iterator());
+        }
+
+        @SuppressWarnings("unchecked")
+        private T advance() {
+            while (ready.isEmpty()) {
+                if (stack.isEmpty()) {
+                    return null;
+                }
+                Iterator<Component> iter = stack.peek();
+                if (!iter.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                Component component = iter.next();
+                if (clazz.isAssignableFrom(component.getClass())) {
+                    ready.add((T) component);
+                }
+                if (component instanceof HasComponents) {
+                    enter((HasComponents) component);
+                }
+            }
+            return ready.poll();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
-            return get(0);
+            T result = next;
+            next = null;
+            return result;
         }
     }
 }
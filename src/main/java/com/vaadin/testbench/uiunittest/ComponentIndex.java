@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.vaadin.shared.Registration;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.HasComponents;
+import com.vaadin.ui.HasComponents.ComponentAttachDetachNotifier;
+import com.vaadin.ui.UI;
+
+/**
+ * Index of the components attached to a UI and its windows. The index is kept
+ * up to date by listening component attach and detach events, so that
+ * component queries do not need to traverse the whole component tree.
+ * <p>
+ * Components are indexed by their class and by their id. Setting the id of a
+ * component does not fire an event, thus the id index can be stale. The
+ * entries found for an id are verified against the current id of the
+ * component, and a miss or a stale entry falls back to comparing the current
+ * ids of all indexed components, which also updates the id index.
+ * <p>
+ * Containers that do not fire attach and detach events, e.g. Grid and
+ * CustomComponent, are re-checked for new children before a query when new
+ * connectors have been registered to the UI since the previous check.
+ *
+ * @see AbstractUIUnitTest#enableComponentIndex()
+ */
+@SuppressWarnings("serial")
+public class ComponentIndex implements Serializable {
+
+    private final UI ui;
+    private final Map<Class<?>, Set<Component>> byClass = new LinkedHashMap<>();
+    private final Map<String, Set<Component>> byId = new HashMap<>();
+    private final Map<Component, String> ids = new IdentityHashMap<>();
+    private final Set<Grid<?>> grids = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+    private final Map<Component, List<Registration>> registrations = new IdentityHashMap<>();
+    private final Set<HasComponents> opaqueContainers = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+    private int connectorCount = -1;
+
+    /**
+     * Create an index of the components of the UI and start tracking the
+     * changes in the component tree.
+     *
+     * @param ui
+     *            The UI to index
+     */
+    public ComponentIndex(UI ui) {
+        assert (ui != null) : "UI can't be null";
+        this.ui = ui;
+        addContainerListeners(ui);
+        addChildren(ui);
+    }
+
+    /**
+     * Get the indexed UI.
+     *
+     * @return UI instance
+     */
+    public UI getUI() {
+        return ui;
+    }
+
+    /**
+     * Stop tracking the component tree and clear the index.
+     */
+    public void close() {
+        registrations.values()
+                .forEach(list -> list.forEach(Registration::remove));
+        registrations.clear();
+        byClass.clear();
+        byId.clear();
+        ids.clear();
+        grids.clear();
+        opaqueContainers.clear();
+    }
+
+    /**
+     * Find all components of given type within the UI in the same order as
+     * they are found by traversing the component tree. Grid editor fields are
+     * included like in {@link AbstractUIUnitTest#$(HasComponents, Class)}.
+     *
+     * @param <T>
+     *            Component type
+     * @param clazz
+     *            Component class
+     * @return List of components
+     */
+    public <T> List<T> find(Class<T> clazz) {
+        return find(clazz, component -> true, true);
+    }
+
+    /**
+     * Find the components of given type within the UI which match the filter.
+     * Ordering the components by their position in the component tree
+     * requires positions of the children of their ancestors, so skip it when
+     * the order does not matter.
+     *
+     * @param <T>
+     *            Component type
+     * @param clazz
+     *            Component class
+     * @param filter
+     *            The filter
+     * @param ordered
+     *            true to order the components as they are found by traversing
+     *            the component tree, false for an unspecified order
+     * @return List of components
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> find(Class<T> clazz, Predicate<Component> filter,
+            boolean ordered) {
+        refreshOpaqueContainers();
+        List<Component> candidates = new ArrayList<>();
+        byClass.forEach((type, components) -> {
+            if (clazz.isAssignableFrom(type)) {
+                for (Component component : components) {
+                    if (filter.test(component)) {
+                        candidates.add(component);
+                    }
+                }
+            }
+        });
+        addEditorFields(clazz, filter, candidates);
+        return (List<T>) (ordered ? new TreeOrder().sort(candidates)
+                : candidates);
+    }
+
+    /**
+     * Find the components of given type within the UI having the given id.
+     * The components are in unspecified order.
+     *
+     * @param <T>
+     *            Component type
+     * @param clazz
+     *            Component class
+     * @param id
+     *            The id as String
+     * @return List of matching components
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> findById(Class<T> clazz, String id) {
+        refreshOpaqueContainers();
+        List<Component> matching = new ArrayList<>();
+        if (!lookupId(clazz, id, matching)) {
+            matching.clear();
+            refreshIds();
+            lookupId(clazz, id, matching);
+        }
+        addEditorFields(clazz, component -> id.equals(component.getId()),
+                matching);
+        return (List<T>) matching;
+    }
+
+    // Collects the indexed components of the class with the id, returns false
+    // on a miss or if an entry is stale
+    private boolean lookupId(Class<?> clazz, String id,
+            List<Component> matching) {
+        Set<Component> components = byId.get(id);
+        if (components == null) {
+            return false;
+        }
+        for (Component component : components) {
+            if (!id.equals(component.getId())) {
+                return false;
+            }
+            if (clazz.isInstance(component)) {
+                matching.add(component);
+            }
+        }
+        return !matching.isEmpty();
+    }
+
+    private void refreshIds() {
+        ids.entrySet().forEach(entry -> {
+            String id = entry.getKey().getId();
+            if (!Objects.equals(id, entry.getValue())) {
+                removeId(entry.getKey(), entry.getValue());
+                addId(entry.getKey(), id);
+                entry.setValue(id);
+            }
+        });
+    }
+
+    private void addId(Component component, String id) {
+        if (id != null) {
+            byId.computeIfAbsent(id, k -> new LinkedHashSet<>())
+                    .add(component);
+        }
+    }
+
+    private void removeId(Component component, String id) {
+        Set<Component> components = id == null ? null : byId.get(id);
+        if (components != null) {
+            components.remove(component);
+            if (components.isEmpty()) {
+                byId.remove(id);
+            }
+        }
+    }
+
+    private void addEditorFields(Class<?> clazz, Predicate<Component> filter,
+            List<Component> candidates) {
+        Set<Component> found = null;
+        for (Grid<?> grid : grids) {
+            if (grid.getEditor().getBinder() == null) {
+                continue;
+            }
+            if (found == null) {
+                found = Collections.newSetFromMap(new IdentityHashMap<>());
+                found.addAll(candidates);
+            }
+            grid.getEditor().getBinder().getFields()
+                    .filter(field -> field instanceof Component
+                            && clazz.isAssignableFrom(field.getClass()))
+                    .map(Component.class::cast).filter(filter)
+                    .filter(found::add).forEach(candidates::add);
+        }
+    }
+
+    private void refreshOpaqueContainers() {
+        // Children are attached only after they have been registered to the
+        // connector tracker of the UI
+        int count = ui.getConnectorTracker().getConnectors().size();
+        if (count == connectorCount) {
+            return;
+        }
+        connectorCount = count;
+        for (HasComponents container : new ArrayList<>(opaqueContainers)) {
+            addChildren(container);
+        }
+    }
+
+    private void addChildren(HasComponents container) {
+        Iterator<Component> iter = container.iterator();
+        while (iter.hasNext()) {
+            add(iter.next());
+        }
+    }
+
+    private void add(Component component) {
+        if (registrations.containsKey(component)) {
+            return;
+        }
+        List<Registration> list = new ArrayList<>();
+        list.add(component.addDetachListener(e -> remove(component)));
+        registrations.put(component, list);
+        byClass.computeIfAbsent(component.getClass(),
+                k -> new LinkedHashSet<>()).add(component);
+        String id = component.getId();
+        ids.put(component, id);
+        addId(component, id);
+        if (component instanceof Grid) {
+            grids.add((Grid<?>) component);
+        }
+        if (component instanceof HasComponents) {
+            addContainerListeners((HasComponents) component);
+            addChildren((HasComponents) component);
+        }
+    }
+
+    private void addContainerListeners(HasComponents container) {
+        List<Registration> list = registrations.computeIfAbsent(container,
+                k -> new ArrayList<>());
+        if (container instanceof ComponentAttachDetachNotifier) {
+            ComponentAttachDetachNotifier notifier = (ComponentAttachDetachNotifier) container;
+            list.add(notifier.addComponentAttachListener(
+                    e -> add(e.getAttachedComponent())));
+        } else {
+            opaqueContainers.add(container);
+        }
+    }
+
+    private void remove(Component component) {
+        List<Registration> list = registrations.remove(component);
+        if (list != null) {
+            list.forEach(Registration::remove);
+        }
+        Set<Component> components = byClass.get(component.getClass());
+        if (components != null) {
+            components.remove(component);
+        }
+        if (ids.containsKey(component)) {
+            removeId(component, ids.remove(component));
+        }
+        grids.remove(component);
+        if (component instanceof HasComponents) {
+            opaqueContainers.remove(component);
+        }
+    }
+
+    /**
+     * Orders components by their position in the component tree. Components
+     * which are not reachable from the UI by iterating containers are ordered
+     * last. Positions of the children are computed once per container.
+     */
+    private class TreeOrder {
+        private final Map<HasComponents, Map<Component, Integer>> positions = new IdentityHashMap<>();
+
+        List<Component> sort(List<Component> components) {
+            if (components.size() < 2) {
+                return components;
+            }
+            Map<Component, int[]> paths = new IdentityHashMap<>();
+            for (Component component : components) {
+                paths.put(component, path(component));
+            }
+            List<Component> sorted = new ArrayList<>(components);
+            sorted.sort((a, b) -> compare(paths.get(a), paths.get(b)));
+            return sorted;
+        }
+
+        private int[] path(Component component) {
+            List<Integer> reversed = new ArrayList<>();
+            Component current = component;
+            while (current != ui) {
+                Component parent = current.getParent();
+                if (!(parent instanceof HasComponents)) {
+                    return null;
+                }
+                Integer position = positions(parent).get(current);
+                if (position == null) {
+                    return null;
+                }
+                reversed.add(position);
+                current = parent;
+            }
+            int[] path = new int[reversed.size()];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = reversed.get(path.length - 1 - i);
+            }
+            return path;
+        }
+
+        private Map<Component, Integer> positions(Component parent) {
+            return positions.computeIfAbsent((HasComponents) parent, p -> {
+                Map<Component, Integer> map = new IdentityHashMap<>();
+                Iterator<Component> iter = p.iterator();
+                int i = 0;
+                while (iter.hasNext()) {
+                    map.putIfAbsent(iter.next(), i++);
+                }
+                return map;
+            });
+        }
+
+        private int compare(int[] a, int[] b) {
+            if (a == null || b == null) {
+                return a == null ? (b == null ? 0 : 1) : -1;
+            }
+            for (int i = 0; i < Math.min(a.length, b.length); i++) {
+                if (a[i] != b[i]) {
+                    return Integer.compare(a[i], b[i]);
+                }
+            }
+            return Integer.compare(a.length, b.length);
+        }
+    }
+}
@@ -8,22 +8,66 @@
  */
 package com.vaadin.testbench.uiunittest;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vaadin.ui.Component;
 
 public final class SerializationDebugUtil {
 
+    /**
+     * The serialized reference fields of each class and its superclasses,
+     * i.e. the non-static, non-transient fields of non-primitive type, made
+     * accessible once and shared by all inspections. Fields which can't be
+     * made accessible, e.g. private fields of JDK classes, are left out.
+     */
+    private static final ClassValue<Field[]> REFERENCE_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Field f : type.getDeclaredFields()) {
+                int mod = f.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isTransient(mod)
+                        || f.getType().isPrimitive()) {
+                    continue;
+                }
+                try {
+                    f.setAccessible(true);
+                    fields.add(f);
+                } catch (RuntimeException ignored) {
+                    // Not accessible
+                }
+            }
+            Class<?> superclass = type.getSuperclass();
+            if (superclass != null && superclass != Object.class) {
+                fields.addAll(Arrays.asList(REFERENCE_FIELDS.get(superclass)));
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
     private SerializationDebugUtil() {
     }
 
@@ -38,15 +82,37 @@ public final class SerializationDebugUtil {
      *         appended
      */
     public static void assertSerializable(Object root, StringBuilder report) {
+        assertSerializable(root, report, false);
+    }
+
+    /**
+     * Asserts that the given object graph is fully serializable. If not, throws
+     * an AssertionError with a detailed report of non-serializable fields
+     * found. The object graph of a large session can be inspected in parallel
+     * in the common ForkJoinPool, then the paths in the report are sorted.
+     *
+     * @param root
+     *            the root object to test for serializability
+     * @param report
+     *            a StringBuilder instance to which the detailed report is
+     *            appended, may be null
+     * @param parallel
+     *            true to inspect independent subgraphs in parallel
+     */
+    public static void assertSerializable(Object root, StringBuilder report,
+            boolean parallel) {
         try {
             serialize(root);
-        } catch (NotSerializableException e) {
+        } catch (NotSerializableException | StackOverflowError e) {
             if (report == null) {
                 report = new StringBuilder();
             }
-            report.append(buildReport(root, e));
-            throw new AssertionError("Serialization failed: " + e.getMessage()
-                    + "\n" + report.toString(), e);
+            report.append(buildReport(root, e, parallel));
+            String message = e instanceof StackOverflowError
+                    ? "the object graph is too deep"
+                    : e.getMessage();
+            throw new AssertionError(
+                    "Serialization failed: " + message + "\n" + report, e);
         } catch (IOException ioe) {
             throw new AssertionError(
                     "Unexpected IO failure during serialization: "
@@ -67,30 +133,204 @@ public final class SerializationDebugUtil {
         assertSerializable(root, null);
     }
 
-    private static void serialize(Object o) throws IOException {
+    /**
+     * Asserts that the given object graph is fully serializable and returns
+     * its serialized size. The serialized form is counted and discarded, not
+     * buffered, so this is cheap enough to call after every interaction. If
+     * the graph is not serializable, throws an AssertionError with a detailed
+     * report of non-serializable fields found.
+     *
+     * @param root
+     *            the root object to test for serializability
+     * @return the size of the serialized form in bytes, 0 for null
+     */
+    public static long assertSerializableSize(Object root) {
+        try {
+            return serializedSize(root);
+        } catch (NotSerializableException e) {
+            throw new AssertionError("Serialization failed: " + e.getMessage()
+                    + "\n" + buildReport(root, e, false), e);
+        }
+    }
+
+    /**
+     * Serializes the given object graph into a stream which only counts the
+     * bytes.
+     *
+     * @param root
+     *            the root object
+     * @return the size of the serialized form in bytes, 0 for null
+     * @throws NotSerializableException
+     *             if the graph contains a non-serializable object
+     */
+    public static long serializedSize(Object root)
+            throws NotSerializableException {
+        try {
+            return serialize(root);
+        } catch (NotSerializableException e) {
+            throw e;
+        } catch (IOException ioe) {
+            throw new AssertionError(
+                    "Unexpected IO failure during serialization: "
+                            + ioe.getMessage(),
+                    ioe);
+        }
+    }
+
+    /**
+     * Profiles the serialized form of the given object graph, e.g. a
+     * VaadinSession or a UI. The bytes are attributed to component subtrees,
+     * field paths and classes, see {@link SerializationProfile}. If the graph
+     * is not serializable, throws an AssertionError with a detailed report of
+     * non-serializable fields found.
+     *
+     * @param root
+     *            the root object to profile
+     * @return the profile
+     */
+    public static SerializationProfile profile(Object root) {
+        assert (root != null) : "Root can't be null";
+        ProfilingObjectOutputStream oos;
+        CountingOutputStream cos = new CountingOutputStream();
+        try {
+            oos = new ProfilingObjectOutputStream(cos);
+            try {
+                oos.writeObject(root);
+            } finally {
+                oos.close();
+            }
+        } catch (NotSerializableException e) {
+            throw new AssertionError("Serialization failed: " + e.getMessage()
+                    + "\n" + buildReport(root, e, false), e);
+        } catch (IOException ioe) {
+            throw new AssertionError(
+                    "Unexpected IO failure during serialization: "
+                            + ioe.getMessage(),
+                    ioe);
+        }
+
+        Map<Object, Owner> owners = findOwners(root);
+        Map<Component, Long> ownBytes = new IdentityHashMap<>();
+        Map<String, Long> pathBytes = new HashMap<>();
+        Map<String, Long> classBytes = new HashMap<>();
+        // Objects written by custom writeObject methods are not reached
+        // through fields, they belong to the object written before them
+        Owner owner = owners.get(root);
+        for (int i = 0; i < oos.objects.size(); i++) {
+            Object obj = oos.objects.get(i);
+            long end = i + 1 < oos.objects.size() ? oos.offsets[i + 1]
+                    : cos.count;
+            long bytes = end - oos.offsets[i];
+            owner = owners.getOrDefault(obj, owner);
+            if (owner.component != null) {
+                ownBytes.merge(owner.component, bytes, Long::sum);
+            }
+            pathBytes.merge(owner.path, bytes, Long::sum);
+            classBytes.merge(obj.getClass().getName(), bytes, Long::sum);
+        }
+        return new SerializationProfile(root.getClass().getName(), cos.count,
+                ownBytes, pathBytes, classBytes);
+    }
+
+    /**
+     * Find the nearest component and the field path from it for each object
+     * reachable from the root.
+     */
+    private static Map<Object, Owner> findOwners(Object root) {
+        Map<Object, Owner> owners = new IdentityHashMap<>();
+        Deque<Object> objects = new ArrayDeque<>();
+        Deque<Owner> paths = new ArrayDeque<>();
+        objects.push(root);
+        paths.push(new Owner(
+                root instanceof Component ? (Component) root : null,
+                simpleName(root.getClass()), 0));
+        while (!objects.isEmpty()) {
+            Object obj = objects.pop();
+            Owner owner = paths.pop();
+            if (owners.containsKey(obj)) {
+                continue;
+            }
+            owners.put(obj, owner);
+            Class<?> cls = obj.getClass();
+            if (isKnownSerializableLeaf(cls) || obj instanceof Class) {
+                continue;
+            }
+            List<Object> children = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            if (cls.isArray()) {
+                if (!cls.getComponentType().isPrimitive()) {
+                    for (Object element : (Object[]) obj) {
+                        children.add(element);
+                        names.add("[]");
+                    }
+                }
+            } else if (obj instanceof Collection) {
+                for (Object element : (Collection<?>) obj) {
+                    children.add(element);
+                    names.add("[]");
+                }
+            } else if (obj instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+                    children.add(entry.getKey());
+                    names.add("[]");
+                    children.add(entry.getValue());
+                    names.add("[]");
+                }
+            } else {
+                // Objects of inaccessible fields get the owner of the
+                // preceding object in the stream
+                for (Field f : REFERENCE_FIELDS.get(cls)) {
+                    try {
+                        children.add(f.get(obj));
+                        names.add("." + f.getName());
+                    } catch (IllegalAccessException ignored) {
+                        // Not readable
+                    }
+                }
+            }
+            for (int i = children.size() - 1; i >= 0; i--) {
+                Object child = children.get(i);
+                if (child == null || owners.containsKey(child)) {
+                    continue;
+                }
+                objects.push(child);
+                paths.push(child instanceof Component
+                        ? new Owner((Component) child,
+                                simpleName(child.getClass()), 0)
+                        : owner.child(names.get(i)));
+            }
+        }
+        return owners;
+    }
+
+    static String simpleName(Class<?> cls) {
+        String name = cls.getSimpleName();
+        return name.isEmpty() ? cls.getName() : name;
+    }
+
+    private static long serialize(Object o) throws IOException {
         if (o == null) {
-            return;
+            return 0;
         }
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        CountingOutputStream cos = new CountingOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(cos);
         try {
             oos.writeObject(o);
         } finally {
             oos.close();
         }
+        return cos.count;
     }
 
-    private static String buildReport(Object root,
-            NotSerializableException original) {
+    private static String buildReport(Object root, Throwable original,
+            boolean parallel) {
         StringBuilder sb = new StringBuilder();
         sb.append("---- Serialization Debug Report ----\n");
         sb.append("Root type: ").append(root.getClass().getName()).append('\n');
         sb.append("Original exception: ").append(original).append('\n');
 
-        Set<Object> visited = Collections
-                .newSetFromMap(new IdentityHashMap<>());
-        List<String> offenders = new ArrayList<>();
-        inspectObject(root, "root", visited, offenders);
+        Inspector inspector = new Inspector(parallel);
+        List<String> offenders = inspector.inspect(root);
 
         if (offenders.isEmpty()) {
             sb.append("No direct non-Serializable fields found.\n");
@@ -102,84 +342,325 @@ public final class SerializationDebugUtil {
         return sb.toString();
     }
 
-    private static void inspectObject(Object obj, String path,
-            Set<Object> visited, List<String> offenders) {
-        if (obj == null || visited.contains(obj)) {
-            return;
+
+    private static boolean isKnownSerializableLeaf(Class<?> cls) {
+        return cls.isPrimitive() || cls == String.class
+                || Number.class.isAssignableFrom(cls) || cls == Boolean.class
+                || cls == Character.class || cls.isEnum()
+                || cls.getName().startsWith("java.time.");
+    }
+
+    /**
+     * Output stream which discards the bytes written to it and counts them.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
         }
-        visited.add(obj);
 
-        Class<?> cls = obj.getClass();
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    /**
+     * Nearest component of an object and the field path from it.
+     */
+    private static final class Owner {
+        private static final int MAX_PATH_DEPTH = 8;
 
-        // Skip Java core known immutable serializable types quickly
-        if (isKnownSerializableLeaf(cls)) {
-            return;
+        private final Component component;
+        private final String path;
+        private final int depth;
+
+        private Owner(Component component, String path, int depth) {
+            this.component = component;
+            this.path = path;
+            this.depth = depth;
         }
 
-        // If object itself not Serializable, record and do not dive further (to
-        // avoid noise)
-        if (!(obj instanceof Serializable)) {
-            offenders.add(path + " (" + cls.getName() + ")");
-            return;
+        private Owner child(String name) {
+            if (depth >= MAX_PATH_DEPTH) {
+                // Long chains, e.g. linked nodes, share the truncated path
+                return this;
+            }
+            return new Owner(component, path + name, depth + 1);
         }
+    }
 
-        // Dive into fields
-        for (Field f : getAllFields(cls)) {
-            if (shouldSkip(f)) {
-                continue;
+    /**
+     * Object output stream which records the stream offset where each object
+     * starts.
+     */
+    private static final class ProfilingObjectOutputStream
+            extends ObjectOutputStream {
+        private final CountingOutputStream out;
+        private final List<Object> objects = new ArrayList<>();
+        private long[] offsets = new long[1024];
+
+        private ProfilingObjectOutputStream(CountingOutputStream out)
+                throws IOException {
+            super(out);
+            this.out = out;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            // Called once per object before it is written, flush the
+            // buffered bytes to get the exact offset
+            flush();
+            if (objects.size() == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
             }
-            try {
-                f.setAccessible(true);
-            } catch (Exception ignored) {
-                continue;
+            offsets[objects.size()] = out.count;
+            objects.add(obj);
+            return obj;
+        }
+    }
+
+    /**
+     * Finds the paths to the non-serializable objects of a graph. Fields are
+     * probed by serializing their values alone, and only the values which
+     * fail are inspected further. The traversal uses an explicit stack, so
+     * deep graphs do not overflow the call stack. In parallel mode the
+     * current thread and workers of the common ForkJoinPool drain a shared
+     * queue of values to inspect. A worker moves the value nearest to the root
+     * from the bottom of its stack to the queue only when its stack is large
+     * and the queue is empty, so only sizeable subgraphs are shared and a
+     * chain is walked by one worker without nesting tasks.
+     */
+    private static final class Inspector {
+        private static final int SHARE_THRESHOLD = 32;
+
+        private final boolean parallel;
+        private final Set<Object> visited;
+        private final Set<IdentityKey> concurrentVisited;
+        private final Collection<String> offenders;
+        private final Queue<Work> shared;
+        // Values in the shared queue or being inspected by a worker
+        private final AtomicInteger pending;
+
+        private Inspector(boolean parallel) {
+            this.parallel = parallel;
+            if (parallel) {
+                visited = null;
+                concurrentVisited = ConcurrentHashMap.newKeySet();
+                offenders = new ConcurrentLinkedQueue<>();
+                shared = new ConcurrentLinkedQueue<>();
+                pending = new AtomicInteger();
+            } else {
+                visited = Collections.newSetFromMap(new IdentityHashMap<>());
+                concurrentVisited = null;
+                offenders = new ArrayList<>();
+                shared = null;
+                pending = null;
             }
-            Object value;
-            try {
-                value = f.get(obj);
-            } catch (IllegalAccessException ignored) {
-                continue;
+        }
+
+        private List<String> inspect(Object root) {
+            Work rootWork = new Work(root, new FieldPath(null, "root"), true);
+            if (!parallel) {
+                inspect(rootWork);
+                return new ArrayList<>(offenders);
             }
-            if (value == null) {
-                continue;
+            pending.incrementAndGet();
+            shared.add(rootWork);
+            int workers = ForkJoinPool.getCommonPoolParallelism();
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 1; i < workers; i++) {
+                tasks.add(ForkJoinPool.commonPool().submit(this::drain));
+            }
+            drain();
+            for (ForkJoinTask<?> task : tasks) {
+                // Tasks which have not started have nothing left to do
+                task.cancel(false);
+                task.quietlyJoin();
+                if (task.isCompletedAbnormally() && !task.isCancelled()) {
+                    throw new IllegalStateException(
+                            "Failed to inspect the object graph",
+                            task.getException());
+                }
             }
+            List<String> sorted = new ArrayList<>(offenders);
+            Collections.sort(sorted);
+            return sorted;
+        }
 
-            String childPath = path + "." + f.getName();
-            if (!(value instanceof Serializable)) {
-                offenders.add(
-                        childPath + " (" + value.getClass().getName() + ")");
-                continue;
+        private void drain() {
+            while (pending.get() > 0) {
+                Work work = shared.poll();
+                if (work == null) {
+                    Thread.yield();
+                    continue;
+                }
+                try {
+                    inspect(work);
+                } finally {
+                    pending.decrementAndGet();
+                }
             }
+        }
 
-            // Try serializing field alone to catch nested problematic graphs
-            try {
-                serialize(value);
-            } catch (NotSerializableException nse) {
-                // Dive deeper to isolate
-                inspectObject(value, childPath, visited, offenders);
-            } catch (IOException ignored) {
-                // Ignore other IO issues for this isolated attempt
+        private boolean visit(Object obj) {
+            return parallel ? concurrentVisited.add(new IdentityKey(obj))
+                    : visited.add(obj);
+        }
+
+        private void inspect(Work rootWork) {
+            Deque<Work> stack = new ArrayDeque<>();
+            stack.push(rootWork);
+            while (!stack.isEmpty()) {
+                if (parallel && stack.size() > SHARE_THRESHOLD
+                        && shared.isEmpty()) {
+                    // The bottom of the stack is nearest to the root
+                    pending.incrementAndGet();
+                    shared.add(stack.removeLast());
+                }
+                Work work = stack.pop();
+                Object obj = work.obj;
+                FieldPath path = work.path;
+                if (!visit(obj)) {
+                    continue;
+                }
+
+                Class<?> cls = obj.getClass();
+
+                // Skip Java core known immutable serializable types quickly
+                if (isKnownSerializableLeaf(cls)) {
+                    continue;
+                }
+
+                // If object itself not Serializable, record and do not dive
+                // further (to avoid noise)
+                if (!(obj instanceof Serializable)) {
+                    offenders.add(path + " (" + cls.getName() + ")");
+                    continue;
+                }
+
+                List<Work> dives = new ArrayList<>();
+                for (Field f : REFERENCE_FIELDS.get(cls)) {
+                    Object value;
+                    try {
+                        value = f.get(obj);
+                    } catch (IllegalAccessException ignored) {
+                        continue;
+                    }
+                    if (value == null) {
+                        continue;
+                    }
+
+                    FieldPath childPath = new FieldPath(path, f.getName());
+                    if (!(value instanceof Serializable)) {
+                        offenders.add(childPath + " ("
+                                + value.getClass().getName() + ")");
+                        continue;
+                    }
+                    if (!work.probe) {
+                        dives.add(new Work(value, childPath, false));
+                        continue;
+                    }
+
+                    // Try serializing field alone to catch nested problematic
+                    // graphs
+                    try {
+                        serialize(value);
+                    } catch (NotSerializableException nse) {
+                        // Dive deeper to isolate
+                        dives.add(new Work(value, childPath, true));
+                    } catch (StackOverflowError soe) {
+                        // Too deep to probe, walk the rest without probing
+                        dives.add(new Work(value, childPath, false));
+                    } catch (IOException ignored) {
+                        // Ignore other IO issues for this isolated attempt
+                    }
+                }
+
+                // Push in reverse to inspect the fields in declaration order
+                for (int i = dives.size() - 1; i >= 0; i--) {
+                    stack.push(dives.get(i));
+                }
             }
         }
     }
 
-    private static boolean shouldSkip(Field f) {
-        int mod = f.getModifiers();
-        return Modifier.isStatic(mod) || Modifier.isTransient(mod);
+    /**
+     * Value to inspect with its path and whether its fields are probed.
+     */
+    private static final class Work {
+        private final Object obj;
+        private final FieldPath path;
+        private final boolean probe;
+
+        private Work(Object obj, FieldPath path, boolean probe) {
+            this.obj = obj;
+            this.path = path;
+            this.probe = probe;
+        }
     }
 
-    private static List<Field> getAllFields(Class<?> cls) {
-        List<Field> fields = new ArrayList<>();
-        while (cls != null && cls != Object.class) {
-            fields.addAll(Arrays.asList(cls.getDeclaredFields()));
-            cls = cls.getSuperclass();
+    /**
+     * Path of fields from the root, built as a string only for the offenders.
+     * Paths through long chains, e.g. linked nodes, are shortened in the
+     * middle.
+     */
+    private static final class FieldPath {
+        private static final int SHOWN_SEGMENTS = 16;
+
+        private final FieldPath parent;
+        private final String name;
+        private final int depth;
+
+        private FieldPath(FieldPath parent, String name) {
+            this.parent = parent;
+            this.name = name;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        @Override
+        public String toString() {
+            String[] names = new String[depth + 1];
+            for (FieldPath p = this; p != null; p = p.parent) {
+                names[p.depth] = p.name;
+            }
+            StringBuilder sb = new StringBuilder(names[0]);
+            for (int i = 1; i < names.length; i++) {
+                if (names.length > 2 * SHOWN_SEGMENTS
+                        && i == SHOWN_SEGMENTS) {
+                    int skipped = names.length - 2 * SHOWN_SEGMENTS;
+                    sb.append("...(").append(skipped).append(" more)");
+                    i += skipped - 1;
+                    continue;
+                }
+                sb.append('.').append(names[i]);
+            }
+            return sb.toString();
         }
-        return fields;
     }
 
-    private static boolean isKnownSerializableLeaf(Class<?> cls) {
-        return cls.isPrimitive() || cls == String.class
-                || Number.class.isAssignableFrom(cls) || cls == Boolean.class
-                || cls == Character.class || cls.isEnum()
-                || cls.getName().startsWith("java.time.");
+    /**
+     * Identity based key for the concurrent set of visited objects.
+     */
+    private static final class IdentityKey {
+        private final Object obj;
+
+        private IdentityKey(Object obj) {
+            this.obj = obj;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(obj);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdentityKey
+                    && ((IdentityKey) other).obj == obj;
+        }
     }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.vaadin.ui.Component;
+import com.vaadin.ui.HasComponents;
+
+/**
+ * Serialized size of an object graph, e.g. a VaadinSession or a UI, broken
+ * down by component subtree, field path and class. Each object in the
+ * serialized form is attributed to the nearest component it is reachable
+ * from, and to the path of fields from that component. Bytes of objects which
+ * are not reachable from any component, e.g. the session attributes, are
+ * attributed to the root.
+ * <p>
+ * The sizes are measured from the serialization stream, thus they include
+ * class descriptors, which are written with the first instance of each class,
+ * and back references. The total may exceed the plain serialized size by a
+ * few bytes per object written by a custom writeObject method.
+ *
+ * @see SerializationDebugUtil#profile(Object)
+ */
+public final class SerializationProfile {
+
+    private final String rootType;
+    private final long totalBytes;
+    private final Map<Component, Long> ownBytes;
+    private final Map<String, Long> pathBytes;
+    private final Map<String, Long> classBytes;
+    private final Map<Component, Long> subtreeBytes = new IdentityHashMap<>();
+
+    SerializationProfile(String rootType, long totalBytes,
+            Map<Component, Long> ownBytes, Map<String, Long> pathBytes,
+            Map<String, Long> classBytes) {
+        this.rootType = rootType;
+        this.totalBytes = totalBytes;
+        this.ownBytes = ownBytes;
+        this.pathBytes = pathBytes;
+        this.classBytes = classBytes;
+    }
+
+    /**
+     * Get the total size of the serialized form.
+     *
+     * @return Size in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Get the bytes attributed to the component itself, not including its
+     * child components.
+     *
+     * @param component
+     *            The component
+     * @return Size in bytes, 0 if the component was not in the graph
+     */
+    public long getOwnBytes(Component component) {
+        return ownBytes.getOrDefault(component, 0L);
+    }
+
+    /**
+     * Get the bytes attributed to the component and its descendants.
+     *
+     * @param component
+     *            The component
+     * @return Size in bytes, 0 if the component was not in the graph
+     */
+    public long getBytes(Component component) {
+        assert (component != null) : "Component can't be null";
+        Long bytes = subtreeBytes.get(component);
+        if (bytes == null) {
+            long sum = getOwnBytes(component);
+            if (component instanceof HasComponents) {
+                for (Component child : (HasComponents) component) {
+                    sum += getBytes(child);
+                }
+            }
+            bytes = sum;
+            subtreeBytes.put(component, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the components with the largest subtrees.
+     *
+     * @param n
+     *            Maximum number of components
+     * @return Components with their subtree size in bytes, largest first
+     */
+    public List<Map.Entry<Component, Long>> topComponents(int n) {
+        return ownBytes.keySet().stream()
+                .<Map.Entry<Component, Long>> map(
+                        component -> new SimpleImmutableEntry<>(component,
+                                getBytes(component)))
+                .sorted(Map.Entry.<Component, Long> comparingByValue()
+                        .reversed())
+                .limit(n).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the field paths holding the most bytes. A path starts with the
+     * class of the component, or of the root, and elements of collections,
+     * maps and arrays are denoted with {@code []}.
+     *
+     * @param n
+     *            Maximum number of paths
+     * @return Paths with their size in bytes, largest first
+     */
+    public List<Map.Entry<String, Long>> topFieldPaths(int n) {
+        return top(pathBytes, n);
+    }
+
+    /**
+     * Get the classes whose instances take the most bytes.
+     *
+     * @param n
+     *            Maximum number of classes
+     * @return Class names with their size in bytes, largest first
+     */
+    public List<Map.Entry<String, Long>> topClasses(int n) {
+        return top(classBytes, n);
+    }
+
+    /**
+     * Assert that the serialized form of the whole graph is at most the given
+     * size.
+     *
+     * @param maxBytes
+     *            Maximum size in bytes
+     * @throws AssertionError
+     *             with the report of the profile if it is larger
+     */
+    public void assertAtMost(long maxBytes) {
+        if (totalBytes > maxBytes) {
+            throw new AssertionError("Expected at most " + maxBytes
+                    + " serialized bytes, but there were " + totalBytes
+                    + "\n" + report(10));
+        }
+    }
+
+    /**
+     * Assert that the subtree of the component takes at most the given size
+     * of the serialized form.
+     *
+     * @param component
+     *            The component
+     * @param maxBytes
+     *            Maximum size in bytes
+     * @throws AssertionError
+     *             with the report of the profile if it is larger
+     */
+    public void assertAtMost(Component component, long maxBytes) {
+        long bytes = getBytes(component);
+        if (bytes > maxBytes) {
+            throw new AssertionError("Expected at most " + maxBytes
+                    + " serialized bytes in " + label(component)
+                    + ", but there were " + bytes + "\n" + report(10));
+        }
+    }
+
+    /**
+     * Build a report of the largest component subtrees, field paths and
+     * classes.
+     *
+     * @param n
+     *            Number of entries listed in each category
+     * @return The report
+     */
+    public String report(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("---- Serialization Profile ----\n");
+        sb.append("Root type: ").append(rootType).append('\n');
+        sb.append("Total bytes: ").append(totalBytes).append('\n');
+        sb.append("Largest component subtrees:\n");
+        topComponents(n).forEach(e -> sb.append("  ").append(e.getValue())
+                .append("  ").append(label(e.getKey())).append('\n'));
+        sb.append("Largest field paths:\n");
+        topFieldPaths(n).forEach(e -> sb.append("  ").append(e.getValue())
+                .append("  ").append(e.getKey()).append('\n'));
+        sb.append("Largest classes:\n");
+        topClasses(n).forEach(e -> sb.append("  ").append(e.getValue())
+                .append("  ").append(e.getKey()).append('\n'));
+        sb.append("-------------------------------");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report(10);
+    }
+
+    private static String label(Component component) {
+        StringBuilder sb = new StringBuilder(
+                SerializationDebugUtil.simpleName(component.getClass()));
+        if (component.getId() != null) {
+            sb.append(" id=").append(component.getId());
+        } else if (component.getCaption() != null) {
+            sb.append(" caption=\"").append(component.getCaption())
+                    .append('"');
+        }
+        return sb.toString();
+    }
+
+    private static List<Map.Entry<String, Long>> top(Map<String, Long> bytes,
+            int n) {
+        return bytes.entrySet().stream()
+                .sorted(Map.Entry.<String, Long> comparingByValue().reversed())
+                .limit(n).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest;
+
+import java.io.Serializable;
+
+/**
+ * Serialization and deserialization of the session after a tester action in
+ * the session round trip mode.
+ *
+ * @see UIUnitTest#enableSessionRoundTrip()
+ */
+@SuppressWarnings("serial")
+public final class SessionRoundTrip implements Serializable {
+
+    private final String action;
+    private final int bytes;
+    private final long serializeNanos;
+    private final long deserializeNanos;
+
+    SessionRoundTrip(String action, int bytes, long serializeNanos,
+            long deserializeNanos) {
+        this.action = action;
+        this.bytes = bytes;
+        this.serializeNanos = serializeNanos;
+        this.deserializeNanos = deserializeNanos;
+    }
+
+    /**
+     * Get the tester action after which the round trip was made.
+     *
+     * @return Action name, e.g. "ButtonTester.click"
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Get the size of the serialized session.
+     *
+     * @return Size in bytes
+     */
+    public int getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the time spent serializing the session.
+     *
+     * @return Duration in nanoseconds
+     */
+    public long getSerializeNanos() {
+        return serializeNanos;
+    }
+
+    /**
+     * Get the time spent deserializing the session.
+     *
+     * @return Duration in nanoseconds
+     */
+    public long getDeserializeNanos() {
+        return deserializeNanos;
+    }
+
+    /**
+     * Get the time of the whole round trip.
+     *
+     * @return Duration in nanoseconds
+     */
+    public long getNanos() {
+        return serializeNanos + deserializeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return action + "[bytes=" + bytes + ", serialize="
+                + serializeNanos / 1000 + "us, deserialize="
+                + deserializeNanos / 1000 + "us]";
+    }
+}
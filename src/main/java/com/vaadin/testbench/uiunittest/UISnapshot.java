@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import com.vaadin.testbench.uiunittest.mocks.MockVaadinSession;
+import com.vaadin.ui.UI;
+
+/**
+ * Serialized copy of a mock session with its UIs. A snapshot is taken once,
+ * e.g. after an expensive view has been built, and each restore creates a new
+ * independent copy of the session and the UIs.
+ *
+ * @see UIUnitTest#takeSnapshot()
+ * @see UIUnitTest#restoreSnapshot(UISnapshot)
+ */
+@SuppressWarnings("serial")
+public final class UISnapshot implements Serializable {
+
+    private final byte[] data;
+    private final int uiId;
+
+    private UISnapshot(byte[] data, int uiId) {
+        this.data = data;
+        this.uiId = uiId;
+    }
+
+    /**
+     * Serialize the session and its UIs.
+     *
+     * @param session
+     *            The session
+     * @param ui
+     *            The UI of the session which is set current when restored
+     * @return UISnapshot instance
+     * @throws AssertionError
+     *             with a report of the non-serializable fields if the session
+     *             is not serializable
+     */
+    static UISnapshot capture(MockVaadinSession session, UI ui) {
+        assert (session != null) : "Session can't be null";
+        assert (ui != null && ui.getSession() == session)
+                : "UI must belong to the session";
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(session);
+        } catch (NotSerializableException e) {
+            SerializationDebugUtil.assertSerializable(session);
+            throw new AssertionError("Serialization failed", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to take snapshot", e);
+        }
+        return new UISnapshot(bos.toByteArray(), ui.getUIId());
+    }
+
+    /**
+     * Deserialize a new copy of the session.
+     *
+     * @return MockVaadinSession instance, not locked
+     */
+    MockVaadinSession restore() {
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(data))) {
+            return (MockVaadinSession) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to restore snapshot", e);
+        }
+    }
+
+    /**
+     * Get the id of the UI which is set current when restored.
+     *
+     * @return UI id
+     */
+    int getUIId() {
+        return uiId;
+    }
+
+    /**
+     * Get the size of the serialized session.
+     *
+     * @return Size in bytes
+     */
+    public int getSize() {
+        return data.length;
+    }
+}
@@ -8,12 +8,14 @@
  */
 package com.vaadin.testbench.uiunittest;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.vaadin.annotations.Push;
+import com.vaadin.server.ClientConnector;
 import com.vaadin.server.ServiceException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
@@ -21,6 +23,8 @@ import com.vaadin.server.VaadinServletRequest;
 import com.vaadin.server.VaadinServletResponse;
 import com.vaadin.server.VaadinServletService;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.testbench.uiunittest.metrics.Metrics;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
 import com.vaadin.testbench.uiunittest.mocks.MockHttpSession;
 import com.vaadin.testbench.uiunittest.mocks.MockServletContext;
 import com.vaadin.testbench.uiunittest.mocks.MockServletRequest;
@@ -28,11 +32,22 @@ import com.vaadin.testbench.uiunittest.mocks.MockServletResponse;
 import com.vaadin.testbench.uiunittest.mocks.MockUI;
 import com.vaadin.testbench.uiunittest.mocks.MockVaadinService;
 import com.vaadin.testbench.uiunittest.mocks.MockVaadinSession;
+import com.vaadin.testbench.uiunittest.testers.Accessors;
+import com.vaadin.testbench.uiunittest.testers.GridTester;
+import com.vaadin.testbench.uiunittest.testers.Tester;
 import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
 
 /**
  * Base class for unit testing complex Vaadin Components and UIs with vanilla
  * Vaadin applications without specific support for CDI or Spring servlet.
+ * <p>
+ * Each test gets its own service, session and UI, which are set as current
+ * instances of the thread running the test. Thus tests can be run in parallel
+ * by a runner which runs each test from set up to tear down in one thread,
+ * e.g. with Maven Surefire {@code parallel} configuration. If a test did not
+ * call {@link #tearDown()}, its current instances are cleared when the next
+ * test in the same thread sets up its environment.
  */
 @SuppressWarnings({ "java:S3011", "java:S4274" })
 public abstract class UIUnitTest extends AbstractUIUnitTest {
@@ -44,33 +59,33 @@ public abstract class UIUnitTest extends AbstractUIUnitTest {
     public static final AtomicInteger mockId = new AtomicInteger(1);
     private MockHttpSession session;
 
+    private static final ThreadLocal<UIUnitTest> activeTest = new ThreadLocal<>();
+
+    private List<SessionRoundTrip> roundTrips;
+
     @Override
     public UI mockVaadin() throws ServiceException {
-        MockVaadinSession vaadinSession = getVaadinSession();
-        MockUI ui = new MockUI(vaadinSession);
-        setUiToSession(vaadinSession, ui);
-        MockVaadinService service = (MockVaadinService) vaadinSession
-                .getService();
-        vaadinRequest = getVaadinRequest();
-        MockServletResponse response = new MockServletResponse();
-        service.setCurrentInstances(vaadinRequest,
-                new VaadinServletResponse(response, service));
-        ui.getPage().init(vaadinRequest);
-        return ui;
+        try (Measurement measurement = Metrics.measure("mockVaadin")) {
+            MockVaadinSession vaadinSession = getVaadinSession();
+            MockUI ui = new MockUI(vaadinSession);
+            setUiToSession(vaadinSession, ui);
+            MockVaadinService service = (MockVaadinService) vaadinSession
+                    .getService();
+            vaadinRequest = getVaadinRequest();
+            MockServletResponse response = new MockServletResponse();
+            service.setCurrentInstances(vaadinRequest,
+                    new VaadinServletResponse(response, service));
+            ui.getPage().init(vaadinRequest);
+            return ui;
+        }
     }
 
     private void setUiToSession(MockVaadinSession vaadinSession, UI ui) {
         UI.setCurrent(ui);
-        Class<?> clazz = ui.getClass();
-        while (!clazz.equals(UI.class)) {
-            clazz = clazz.getSuperclass();
-        }
         try {
-            Field uiIdField = clazz.getDeclaredField("uiId");
-            uiIdField.setAccessible(true);
-            uiIdField.set(ui, mockId.getAndIncrement());
-        } catch (NoSuchFieldException | SecurityException
-                | IllegalArgumentException | IllegalAccessException e) {
+            Accessors.field(UI.class, "uiId").set(ui,
+                    mockId.getAndIncrement());
+        } catch (IllegalStateException e) {
             throw new RuntimeException("Failed to set uiId field", e);
         }
         vaadinSession.addUI(ui);
@@ -78,47 +93,234 @@ public abstract class UIUnitTest extends AbstractUIUnitTest {
 
     @Override
     public void mockVaadin(UI ui) throws ServiceException {
+        try (Measurement measurement = Metrics.measure("mockVaadin")) {
+            assert (ui != null) : UI_CAN_T_BE_NULL;
+            MockVaadinSession vaadinSession = getVaadinSession();
+            ui.setSession(vaadinSession);
+            setUiToSession(vaadinSession, ui);
+            MockVaadinService service = (MockVaadinService) vaadinSession
+                    .getService();
+            vaadinRequest = getVaadinRequest();
+            MockServletResponse response = new MockServletResponse();
+            vaadinResponse = new VaadinServletResponse(response, service);
+            service.setCurrentInstances(vaadinRequest, vaadinResponse);
+            if (ui.getClass().isAnnotationPresent(Push.class)) {
+                Push push = ui.getClass().getAnnotation(Push.class);
+                ui.getPushConfiguration().setPushMode(push.value());
+                ui.getPushConfiguration().setTransport(push.transport());
+            }
+            ui.getPage().init(vaadinRequest);
+            try {
+                Accessors.method(ui.getClass(), "init", VaadinRequest.class)
+                        .invoke(ui, vaadinRequest);
+            } catch (InvocationTargetException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Take a snapshot of the current session and UI. This can be used to build
+     * an expensive view once per test class and to restore a fresh copy of it
+     * before each test with {@link #restoreSnapshot(UISnapshot)}. The session
+     * and its UIs must be serializable.
+     *
+     * @return UISnapshot of the current session
+     */
+    public UISnapshot takeSnapshot() {
+        assert (UI.getCurrent() != null) : "UI has not been setup";
+        return UISnapshot.capture(
+                (MockVaadinSession) VaadinSession.getCurrent(),
+                UI.getCurrent());
+    }
+
+    /**
+     * Create mocked Vaadin environment with a new copy of the session and UI
+     * captured in the snapshot. This is used instead of
+     * {@link #mockVaadin(UI)}, the UI is not initialized again. Session is
+     * locked. UI and VaadinSession thread locals are set.
+     *
+     * @see #takeSnapshot()
+     * @see #tearDown()
+     *
+     * @param snapshot
+     *            The snapshot
+     * @return The restored UI instance
+     * @throws ServiceException
+     */
+    public UI restoreSnapshot(UISnapshot snapshot) throws ServiceException {
+        try (Measurement measurement = Metrics.measure("restoreSnapshot")) {
+            assert (snapshot != null) : "Snapshot can't be null";
+            return activate(snapshot);
+        }
+    }
+
+    private UI activate(UISnapshot snapshot) throws ServiceException {
+        MockVaadinService service = getService();
+        MockVaadinSession vaadinSession = snapshot.restore();
+        release(VaadinSession.getCurrent(), UI.getCurrent());
+        session = vaadinSession.getHttpSession();
+        vaadinSession.refreshTransients(vaadinSession.getSession(), service);
+        vaadinSession.lock();
+        VaadinSession.setCurrent(vaadinSession);
+        UI ui = vaadinSession.getUIById(snapshot.getUIId());
         assert (ui != null) : UI_CAN_T_BE_NULL;
-        MockVaadinSession vaadinSession = getVaadinSession();
-        ui.setSession(vaadinSession);
-        setUiToSession(vaadinSession, ui);
-        MockVaadinService service = (MockVaadinService) vaadinSession
-                .getService();
+        UI.setCurrent(ui);
         vaadinRequest = getVaadinRequest();
-        MockServletResponse response = new MockServletResponse();
-        vaadinResponse = new VaadinServletResponse(response, service);
+        vaadinResponse = new VaadinServletResponse(new MockServletResponse(),
+                service);
         service.setCurrentInstances(vaadinRequest, vaadinResponse);
-        if (ui.getClass().isAnnotationPresent(Push.class)) {
-            Push push = ui.getClass().getAnnotation(Push.class);
-            ui.getPushConfiguration().setPushMode(push.value());
-            ui.getPushConfiguration().setTransport(push.transport());
+        return ui;
+    }
+
+    /*
+     * The replaced or torn down session is closed and its lock released,
+     * otherwise it would stay locked by the test thread.
+     */
+    private static void release(VaadinSession vaadinSession, UI ui) {
+        if (vaadinSession == null) {
+            return;
         }
-        ui.getPage().init(vaadinRequest);
-        Class<?> clazz = ui.getClass();
-        try {
-            Method initMethod = clazz.getDeclaredMethod("init",
-                    VaadinRequest.class);
-            initMethod.setAccessible(true);
-            initMethod.invoke(ui, vaadinRequest);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
-            e.printStackTrace();
+        if (ui != null && ui.getSession() == vaadinSession) {
+            ui.detach();
+            ui.close();
+        }
+        vaadinSession.close();
+        while (vaadinSession.hasLock()) {
+            vaadinSession.unlock();
+        }
+    }
+
+    /**
+     * Enable the session round trip mode, which simulates a cluster
+     * replicating the session after every request. After each interaction
+     * method of a tester, e.g. click or setValue, which completes normally the
+     * session and its UIs are serialized and replaced with a deserialized
+     * copy, which is set as the current session and UI. The replaced session
+     * is closed and unlocked. Methods which only read the component state do
+     * not cause a round trip. This reveals state which is lost in
+     * replication, e.g. transient fields which are not rebuilt. The size and
+     * the time of each round trip are recorded, see
+     * {@link #getSessionRoundTrips()}.
+     * <p>
+     * Component references held by the test refer to the replaced UI after
+     * the next action. Testers resolve their component to the current copy by
+     * connector id on each call, so a tester can be kept across actions, and
+     * so are containers passed to {@code $(container, type)}. Other
+     * components, and items or values held by the test, are still the old
+     * copies, query the components again with {@code $()}.
+     *
+     * @see #disableSessionRoundTrip()
+     */
+    public void enableSessionRoundTrip() {
+        assert (UI.getCurrent() != null) : "UI has not been setup";
+        roundTrips = new ArrayList<>();
+        Tester.setActionListener(this::roundTrip);
+        Tester.setComponentResolver(this::current);
+    }
+
+    /**
+     * Disable the session round trip mode. The recorded round trips remain
+     * available.
+     *
+     * @see #enableSessionRoundTrip()
+     */
+    public void disableSessionRoundTrip() {
+        Tester.setActionListener(null);
+        Tester.setComponentResolver(null);
+    }
+
+    /**
+     * Get the round trips recorded since the session round trip mode was
+     * enabled.
+     *
+     * @see #enableSessionRoundTrip()
+     *
+     * @return Unmodifiable list of round trips in the order of the actions
+     */
+    public List<SessionRoundTrip> getSessionRoundTrips() {
+        if (roundTrips == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(roundTrips);
+    }
+
+    private void roundTrip(String action) {
+        if (UI.getCurrent() == null) {
+            return;
+        }
+        try (Measurement measurement = Metrics.measure("roundTrip")) {
+            boolean indexed = getComponentIndex() != null;
+            // The caches refer to the Grids of the replaced UI
+            GridTester.releaseRowCaches();
+            long start = System.nanoTime();
+            UISnapshot snapshot = UISnapshot.capture(
+                    (MockVaadinSession) VaadinSession.getCurrent(),
+                    UI.getCurrent());
+            long serialized = System.nanoTime();
+            activate(snapshot);
+            long deserialized = System.nanoTime();
+            if (indexed) {
+                enableComponentIndex();
+            }
+            roundTrips.add(new SessionRoundTrip(action, snapshot.getSize(),
+                    serialized - start, deserialized - serialized));
+        } catch (ServiceException e) {
+            throw new IllegalStateException("Failed to restore the session",
+                    e);
         }
     }
 
     @Override
-    public void tearDown() {
-        VaadinSession vaadinSession = VaadinSession.getCurrent();
+    @SuppressWarnings("unchecked")
+    protected <T extends ClientConnector> T current(T connector) {
         UI ui = UI.getCurrent();
-        ui.detach();
-        ui.close();
-        vaadinSession.close();
-        VaadinService.getCurrent().setCurrentInstances(null, null);
-        VaadinService.setCurrent(null);
-        VaadinSession.setCurrent(null);
-        UI.setCurrent(null);
-        this.session = null;
+        if (roundTrips == null || connector == null || ui == null
+                || connector.getUI() == ui) {
+            return connector;
+        }
+        ClientConnector copy = ui.getConnectorTracker()
+                .getConnector(connector.getConnectorId());
+        return copy != null && copy.getClass() == connector.getClass()
+                ? (T) copy
+                : connector;
+    }
+
+    @Override
+    public void tearDown() {
+        try (Measurement measurement = Metrics.measure("tearDown")) {
+            GridTester.releaseRowCaches();
+            disableComponentIndex();
+            resetVirtualTime();
+            // Unlocking also releases the session from the thread local
+            // reference of MockVaadinSession, which would otherwise keep it
+            // alive in pooled test threads
+            release(VaadinSession.getCurrent(), UI.getCurrent());
+            VaadinService.getCurrent().setCurrentInstances(null, null);
+            CurrentInstance.clearAll();
+            activeTest.remove();
+            this.session = null;
+        } finally {
+            Tester.setActionListener(null);
+            Tester.setComponentResolver(null);
+            Metrics.setListener(null);
+        }
+    }
+
+    /*
+     * Test runners may reuse threads. Current instances left behind by a test
+     * which was not torn down belong to another test and are cleared, so that
+     * the test does not pick up the service or session of the previous test.
+     */
+    private void bindToCurrentThread() {
+        UIUnitTest active = activeTest.get();
+        if (active != this) {
+            if (active != null) {
+                GridTester.releaseRowCaches();
+                CurrentInstance.clearAll();
+            }
+            activeTest.set(this);
+        }
     }
 
     /**
@@ -128,8 +330,11 @@ public abstract class UIUnitTest extends AbstractUIUnitTest {
      * @throws ServiceException
      */
     protected MockVaadinService getService() throws ServiceException {
+        bindToCurrentThread();
         if (VaadinService.getCurrent() == null) {
-            MockVaadinService service = new MockVaadinService();
+            MockVaadinService service = isServiceReused()
+                    ? MockVaadinService.getWarmInstance()
+                    : new MockVaadinService();
             VaadinService.setCurrent(service);
             return service;
 
@@ -137,6 +342,21 @@ public abstract class UIUnitTest extends AbstractUIUnitTest {
         return (MockVaadinService) VaadinService.getCurrent();
     }
 
+    /**
+     * Whether the tests reuse an initialized MockVaadinService instead of
+     * creating and initializing a new one for every test. Initializing the
+     * service is the largest fixed cost of mockVaadin(). The reused service
+     * is reset before each test, see {@link MockVaadinService#reset()}.
+     * <p>
+     * Returns false by default, override to enable reuse e.g. in the common
+     * base class of the tests.
+     *
+     * @return true if the service is reused
+     */
+    protected boolean isServiceReused() {
+        return false;
+    }
+
     /**
      * Get the mock HTTP session or create a new one if it doesn't exist.
      * <p>
@@ -162,6 +382,7 @@ public abstract class UIUnitTest extends AbstractUIUnitTest {
      * @throws ServiceException
      */
     protected MockVaadinSession getVaadinSession() throws ServiceException {
+        bindToCurrentThread();
         if (VaadinSession.getCurrent() == null) {
             MockVaadinSession vaadinSession = new MockVaadinSession(
                     getService(), getSession());
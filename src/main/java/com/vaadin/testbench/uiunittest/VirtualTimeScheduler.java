@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deterministic ScheduledExecutorService driven by virtual time. Submitted
+ * tasks are not run by background threads, instead they are queued and run
+ * synchronously on the calling thread when the virtual time is advanced with
+ * {@link #advanceTime(Duration)}. Tasks are run in the order of their
+ * scheduled time and tasks scheduled for the same time in submission order.
+ * <p>
+ * The application can be wired to use this scheduler, or to use it as an
+ * Executor, e.g. with {@code CompletableFuture.supplyAsync}, and to read the
+ * current time from {@link #getClock()}. Then asynchronous logic with long
+ * delays can be tested without waiting real time.
+ *
+ * @see AbstractUIUnitTest#advanceTime(Duration)
+ */
+public class VirtualTimeScheduler extends AbstractExecutorService
+        implements ScheduledExecutorService {
+
+    private final Instant start;
+    private final Clock clock;
+    private final PriorityQueue<ScheduledTask<?>> queue = new PriorityQueue<>();
+    private long nanos;
+    private long sequence;
+    private boolean shutdown;
+
+    /**
+     * Create a scheduler whose virtual clock starts from the current time in
+     * the default time zone.
+     */
+    public VirtualTimeScheduler() {
+        this(Instant.now(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Create a scheduler whose virtual clock starts from the given instant.
+     *
+     * @param start
+     *            The initial time of the virtual clock
+     * @param zone
+     *            The time zone of the virtual clock
+     */
+    public VirtualTimeScheduler(Instant start, ZoneId zone) {
+        assert (start != null) : "Start can't be null";
+        assert (zone != null) : "Zone can't be null";
+        this.start = start;
+        this.clock = new VirtualClock(zone);
+    }
+
+    /**
+     * Get the virtual clock, which only moves when the time is advanced.
+     *
+     * @return Clock instance
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Get the virtual time elapsed since the scheduler was created. This can be
+     * used in place of {@link System#nanoTime()}.
+     *
+     * @return Elapsed virtual time in nanoseconds
+     */
+    public synchronized long nanoTime() {
+        return nanos;
+    }
+
+    /**
+     * Advance the virtual time by the given duration and run the tasks which
+     * become due on the calling thread. The virtual clock is set to the
+     * scheduled time of each task while it is run, so tasks scheduled by the
+     * tasks are run as well if they become due within the duration.
+     *
+     * @param duration
+     *            The duration, not negative
+     * @return The number of tasks run
+     */
+    public int advanceTime(Duration duration) {
+        assert (duration != null
+                && !duration.isNegative()) : "Duration can't be negative";
+        long target;
+        synchronized (this) {
+            target = Math.addExact(nanos, duration.toNanos());
+        }
+        int count = 0;
+        ScheduledTask<?> task;
+        while ((task = nextDueTask(target)) != null) {
+            task.run();
+            count++;
+        }
+        synchronized (this) {
+            nanos = Math.max(nanos, target);
+        }
+        return count;
+    }
+
+    /**
+     * Run the tasks which are due at the current virtual time.
+     *
+     * @return The number of tasks run
+     */
+    public int runDueTasks() {
+        return advanceTime(Duration.ZERO);
+    }
+
+    /**
+     * Get the number of queued tasks.
+     *
+     * @return The number of tasks
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    private synchronized ScheduledTask<?> nextDueTask(long target) {
+        ScheduledTask<?> task = queue.peek();
+        if (task == null || task.time > target) {
+            return null;
+        }
+        queue.poll();
+        nanos = Math.max(nanos, task.time);
+        return task;
+    }
+
+    private synchronized <V> ScheduledTask<V> enqueue(ScheduledTask<V> task) {
+        if (shutdown) {
+            if (!task.hasRun()) {
+                throw new RejectedExecutionException(
+                        "Scheduler has been shut down");
+            }
+            // Periodic tasks are not rescheduled after shutdown
+            task.cancel(false);
+            return task;
+        }
+        queue.add(task);
+        return task;
+    }
+
+    private synchronized long triggerTime(long delay, TimeUnit unit) {
+        return nanos + Math.max(0, unit.toNanos(delay));
+    }
+
+    private synchronized long nextSequence() {
+        return sequence++;
+    }
+
+    private synchronized void dequeue(ScheduledTask<?> task) {
+        queue.remove(task);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay,
+            TimeUnit unit) {
+        assert (command != null) : "Command can't be null";
+        return enqueue(new ScheduledTask<>(Executors.callable(command, null),
+                triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay,
+            TimeUnit unit) {
+        assert (callable != null) : "Callable can't be null";
+        return enqueue(
+                new ScheduledTask<>(callable, triggerTime(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command,
+            long initialDelay, long period, TimeUnit unit) {
+        assert (command != null) : "Command can't be null";
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        return enqueue(new ScheduledTask<>(Executors.callable(command, null),
+                triggerTime(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command,
+            long initialDelay, long delay, TimeUnit unit) {
+        assert (command != null) : "Command can't be null";
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Delay must be positive");
+        }
+        return enqueue(new ScheduledTask<>(Executors.callable(command, null),
+                triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    /**
+     * Reject new tasks and cancel periodic tasks. Already queued one-shot
+     * tasks are still run when the time is advanced.
+     */
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        queue.removeIf(task -> {
+            if (task.isPeriodic()) {
+                task.cancel(false);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>(queue);
+        queue.clear();
+        return pending;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown && queue.isEmpty();
+    }
+
+    /**
+     * Queued tasks are run only when the virtual time is advanced, thus this
+     * does not wait.
+     *
+     * @return true if the scheduler is terminated
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return isTerminated();
+    }
+
+    private class ScheduledTask<V> extends FutureTask<V>
+            implements RunnableScheduledFuture<V> {
+        private final long order = nextSequence();
+        // Positive for fixed rate, negative for fixed delay
+        private final long period;
+        private long time;
+        private boolean hasRun;
+
+        ScheduledTask(Callable<V> callable, long time, long period) {
+            super(callable);
+            this.time = time;
+            this.period = period;
+        }
+
+        boolean hasRun() {
+            return hasRun;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            if (other instanceof ScheduledTask) {
+                ScheduledTask<?> task = (ScheduledTask<?>) other;
+                int result = Long.compare(time, task.time);
+                return result != 0 ? result : Long.compare(order, task.order);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+                    other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void run() {
+            hasRun = true;
+            if (!isPeriodic()) {
+                super.run();
+            } else if (runAndReset()) {
+                time = period > 0 ? time + period : nanoTime() - period;
+                enqueue(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                dequeue(this);
+            }
+            return cancelled;
+        }
+    }
+
+    private class VirtualClock extends Clock {
+        private final ZoneId zone;
+
+        VirtualClock(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return zone.equals(this.zone) ? this : new VirtualClock(zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return start.plusNanos(nanoTime());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.metrics;
+
+/**
+ * Thread bound access to the metrics listener of the running test. When no
+ * listener is set, measuring costs one thread local lookup and does not
+ * allocate.
+ *
+ * @see com.vaadin.testbench.uiunittest.AbstractUIUnitTest#setMetricsListener(MetricsListener)
+ */
+public final class Metrics {
+
+    private static final ThreadLocal<MetricsListener> listener = new ThreadLocal<>();
+
+    private static final Measurement NOT_MEASURED = new Measurement(null, null,
+            0);
+
+    private Metrics() {
+        // Utility class
+    }
+
+    /**
+     * Set the metrics listener of the current thread.
+     *
+     * @param metricsListener
+     *            The listener, null to disable metrics
+     */
+    public static void setListener(MetricsListener metricsListener) {
+        if (metricsListener == null) {
+            listener.remove();
+        } else {
+            listener.set(metricsListener);
+        }
+    }
+
+    /**
+     * Get the metrics listener of the current thread.
+     *
+     * @return The listener, null if metrics are disabled
+     */
+    public static MetricsListener getListener() {
+        return listener.get();
+    }
+
+    /**
+     * Start measuring a phase. The duration is recorded when the returned
+     * measurement is closed, use with try-with-resources.
+     *
+     * @param phase
+     *            The name of the phase
+     * @return Measurement
+     */
+    public static Measurement measure(String phase) {
+        MetricsListener metricsListener = listener.get();
+        if (metricsListener == null) {
+            return NOT_MEASURED;
+        }
+        return new Measurement(metricsListener, phase, System.nanoTime());
+    }
+
+    /**
+     * Start measuring a method of a class, the phase is named
+     * {@code SimpleClassName.method}. The name is built only if metrics are
+     * enabled.
+     *
+     * @param type
+     *            The class
+     * @param method
+     *            The name of the method
+     * @return Measurement
+     */
+    public static Measurement measure(Class<?> type, String method) {
+        MetricsListener metricsListener = listener.get();
+        if (metricsListener == null) {
+            return NOT_MEASURED;
+        }
+        return new Measurement(metricsListener,
+                type.getSimpleName() + "." + method, System.nanoTime());
+    }
+
+    /**
+     * Running measurement of a phase.
+     */
+    public static final class Measurement implements AutoCloseable {
+        private final MetricsListener metricsListener;
+        private final String phase;
+        private final long start;
+
+        private Measurement(MetricsListener metricsListener, String phase,
+                long start) {
+            this.metricsListener = metricsListener;
+            this.phase = phase;
+            this.start = start;
+        }
+
+        /**
+         * Record the duration since the start of the measurement.
+         */
+        @Override
+        public void close() {
+            if (metricsListener != null) {
+                metricsListener.record(phase, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.metrics;
+
+/**
+ * Listener of the durations of the test phases, e.g. mockVaadin, navigate,
+ * queries and tester methods.
+ *
+ * @see TimingMetrics
+ * @see Metrics
+ */
+@FunctionalInterface
+public interface MetricsListener {
+
+    /**
+     * Record the duration of a phase.
+     *
+     * @param phase
+     *            The name of the phase, e.g. "navigate" or "GridTester.click"
+     * @param nanos
+     *            The duration in nanoseconds
+     */
+    void record(String phase, long nanos);
+}
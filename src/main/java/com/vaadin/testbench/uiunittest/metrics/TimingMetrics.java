@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics listener which aggregates count, total and maximum duration per
+ * phase. Recordings can be forwarded to a parent, so that e.g. each test has
+ * its own metrics while a shared instance collects the metrics of the whole
+ * suite. This is thread safe, so a shared instance can be used by tests
+ * running in parallel.
+ */
+public class TimingMetrics implements MetricsListener {
+
+    private final TimingMetrics parent;
+    private final Map<String, Stat> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Create metrics without a parent.
+     */
+    public TimingMetrics() {
+        this(null);
+    }
+
+    /**
+     * Create metrics forwarding the recordings to the parent.
+     *
+     * @param parent
+     *            The parent metrics, e.g. for the suite, can be null
+     */
+    public TimingMetrics(TimingMetrics parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void record(String phase, long nanos) {
+        stats.computeIfAbsent(phase, k -> new Stat()).add(nanos);
+        if (parent != null) {
+            parent.record(phase, nanos);
+        }
+    }
+
+    /**
+     * Get the names of the recorded phases in alphabetical order.
+     *
+     * @return List of phase names
+     */
+    public List<String> getPhases() {
+        List<String> phases = new ArrayList<>(stats.keySet());
+        phases.sort(null);
+        return phases;
+    }
+
+    /**
+     * Get the number of recordings of the phase.
+     *
+     * @param phase
+     *            The name of the phase
+     * @return The count, 0 if not recorded
+     */
+    public long getCount(String phase) {
+        Stat stat = stats.get(phase);
+        return stat == null ? 0 : stat.snapshot()[0];
+    }
+
+    /**
+     * Get the total duration of the phase.
+     *
+     * @param phase
+     *            The name of the phase
+     * @return Total duration in nanoseconds, 0 if not recorded
+     */
+    public long getTotalNanos(String phase) {
+        Stat stat = stats.get(phase);
+        return stat == null ? 0 : stat.snapshot()[1];
+    }
+
+    /**
+     * Get the maximum duration of the phase.
+     *
+     * @param phase
+     *            The name of the phase
+     * @return Maximum duration in nanoseconds, 0 if not recorded
+     */
+    public long getMaxNanos(String phase) {
+        Stat stat = stats.get(phase);
+        return stat == null ? 0 : stat.snapshot()[2];
+    }
+
+    /**
+     * Clear the recorded metrics. The parent is not cleared.
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Report the metrics as JSON object, where the phases are ordered by
+     * name, e.g.
+     * {@code {"phases":{"navigate":{"count":1,"totalNanos":5,"maxNanos":5}}}}
+     *
+     * @return JSON as String
+     */
+    public String toJson() {
+        Map<String, long[]> sorted = new TreeMap<>();
+        stats.forEach((phase, stat) -> sorted.put(phase, stat.snapshot()));
+        StringBuilder json = new StringBuilder("{\"phases\":{");
+        boolean first = true;
+        for (Map.Entry<String, long[]> entry : sorted.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            long[] values = entry.getValue();
+            appendString(json, entry.getKey());
+            json.append(":{\"count\":").append(values[0])
+                    .append(",\"totalNanos\":").append(values[1])
+                    .append(",\"maxNanos\":").append(values[2]).append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Write the JSON report to a file.
+     *
+     * @see #toJson()
+     *
+     * @param file
+     *            The file, parent directories are created
+     * @throws IOException
+     */
+    public void writeJson(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static final class Stat {
+        private long count;
+        private long total;
+        private long max;
+
+        synchronized void add(long nanos) {
+            count++;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+
+        synchronized long[] snapshot() {
+            return new long[] { count, total, max };
+        }
+    }
+}
@@ -122,4 +122,22 @@ public class MockDeploymentConfiguration
         return sendUrlsAsParameters;
     }
 
-}
\ No newline at end of file
+    /**
+     * Restore the default configuration, i.e. the state of a new instance.
+     */
+    public void reset() {
+        MockDeploymentConfiguration defaults = new MockDeploymentConfiguration();
+        productionMode = defaults.productionMode;
+        xsrfProtectionEnabled = defaults.xsrfProtectionEnabled;
+        resourceCacheTime = defaults.resourceCacheTime;
+        heartbeatInterval = defaults.heartbeatInterval;
+        closeIdleSessions = defaults.closeIdleSessions;
+        pushMode = defaults.pushMode;
+        initParameters.clear();
+        initParameters.putAll(defaults.initParameters);
+        applicationOrSystemProperty.clear();
+        applicationOrSystemProperty
+                .putAll(defaults.applicationOrSystemProperty);
+        syncIdCheckEnabled = defaults.syncIdCheckEnabled;
+    }
+}
@@ -8,6 +8,7 @@
  */
 package com.vaadin.testbench.uiunittest.mocks;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -15,9 +16,14 @@ import javax.servlet.ServletException;
 
 import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.RequestHandler;
+import com.vaadin.server.ServiceDestroyListener;
 import com.vaadin.server.ServiceException;
+import com.vaadin.server.SessionDestroyListener;
+import com.vaadin.server.SessionInitListener;
+import com.vaadin.server.SystemMessagesProvider;
 import com.vaadin.server.VaadinServlet;
 import com.vaadin.server.VaadinServletService;
+import com.vaadin.shared.Registration;
 
 /**
  *
@@ -26,6 +32,16 @@ import com.vaadin.server.VaadinServletService;
 @SuppressWarnings("serial")
 public class MockVaadinService extends VaadinServletService {
 
+    /*
+     * Initialized services kept for reuse, one per thread so that tests
+     * running in parallel do not share a service.
+     */
+    private static final ThreadLocal<MockVaadinService> warmInstance = new ThreadLocal<>();
+
+    private final List<Registration> registrations = new ArrayList<>();
+    private SystemMessagesProvider initialSystemMessagesProvider;
+    private boolean initialized;
+
     public MockVaadinService() throws ServiceException {
         this(new MockDeploymentConfiguration());
     }
@@ -47,6 +63,70 @@ public class MockVaadinService extends VaadinServletService {
         } catch (ServletException e) {
             throw new RuntimeException(e);
         }
+        initialSystemMessagesProvider = getSystemMessagesProvider();
+        initialized = true;
+    }
+
+    /**
+     * Get the initialized service of the current thread for reuse, create it
+     * if it does not exist. The service is reset before it is returned.
+     *
+     * @see #reset()
+     *
+     * @return MockVaadinService instance
+     * @throws ServiceException
+     */
+    public static MockVaadinService getWarmInstance() throws ServiceException {
+        MockVaadinService service = warmInstance.get();
+        if (service == null) {
+            service = new MockVaadinService();
+            warmInstance.set(service);
+        } else {
+            service.reset();
+        }
+        return service;
+    }
+
+    /**
+     * Clear the state added to the service after its initialization, so that
+     * it can be reused by the next test. Listeners added after the
+     * initialization are removed, the system messages provider and the mock
+     * deployment configuration are restored. Override to clear additional
+     * state.
+     */
+    public void reset() {
+        registrations.forEach(Registration::remove);
+        registrations.clear();
+        setSystemMessagesProvider(initialSystemMessagesProvider);
+        if (getDeploymentConfiguration() instanceof MockDeploymentConfiguration) {
+            ((MockDeploymentConfiguration) getDeploymentConfiguration())
+                    .reset();
+        }
+        setCurrentInstances(null, null);
+    }
+
+    @Override
+    public Registration addSessionInitListener(SessionInitListener listener) {
+        return track(super.addSessionInitListener(listener));
+    }
+
+    @Override
+    public Registration addSessionDestroyListener(
+            SessionDestroyListener listener) {
+        return track(super.addSessionDestroyListener(listener));
+    }
+
+    @Override
+    public Registration addServiceDestroyListener(
+            ServiceDestroyListener listener) {
+        return track(super.addServiceDestroyListener(listener));
+    }
+
+    private Registration track(Registration registration) {
+        if (initialized) {
+            registrations.add(registration);
+        }
+        return registration;
     }
 
     @Override
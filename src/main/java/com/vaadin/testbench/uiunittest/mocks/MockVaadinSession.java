@@ -8,8 +8,11 @@
  */
 package com.vaadin.testbench.uiunittest.mocks;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
@@ -69,11 +72,103 @@ public class MockVaadinSession extends VaadinSession {
 
     @Override
     public void unlock() {
+        boolean runsAccessTasks = lock.getHoldCount() == 1
+                && !getPendingAccessQueue().isEmpty();
         super.unlock();
         referenceKeeper.remove();
+        if (!lock.isHeldByCurrentThread() && (runsAccessTasks
+                || Thread.currentThread() != waitingThread)) {
+            signalChange();
+        }
+    }
+
+    /**
+     * Wait until the condition is true or the timeout expires. The current
+     * thread must hold the session lock. The lock is released while waiting
+     * and the condition is re-evaluated with the lock held each time another
+     * thread has released the session lock or pending access tasks have been
+     * run, so waiting ends as soon as e.g. an {@code UI.access} task has made
+     * the condition true.
+     *
+     * @param condition
+     *            Boolean condition, evaluated while holding the session lock
+     * @param timeout
+     *            Maximum time to wait
+     * @param unit
+     *            Unit of the timeout
+     * @return The last value of the condition
+     */
+    public boolean await(BooleanSupplier condition, long timeout,
+            TimeUnit unit) {
+        assert (hasLock()) : "Session must be locked";
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Thread previous = waitingThread;
+        waitingThread = Thread.currentThread();
+        try {
+            while (!condition.getAsBoolean()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                long observed = getChangeCount();
+                boolean interrupted;
+                unlock();
+                try {
+                    interrupted = !awaitChange(observed, remaining);
+                } finally {
+                    lock();
+                }
+                if (interrupted) {
+                    return condition.getAsBoolean();
+                }
+            }
+            return true;
+        } finally {
+            waitingThread = previous;
+        }
+    }
+
+    private long getChangeCount() {
+        changeLock.lock();
+        try {
+            return changeCount;
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    private void signalChange() {
+        changeLock.lock();
+        try {
+            changeCount++;
+            changed.signalAll();
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    private boolean awaitChange(long observed, long timeoutNanos) {
+        changeLock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (changeCount == observed && remaining > 0) {
+                remaining = changed.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            changeLock.unlock();
+        }
     }
 
     private int closeCount;
 
     private ReentrantLock lock = new ReentrantLock();
+
+    private final ReentrantLock changeLock = new ReentrantLock();
+    private final Condition changed = changeLock.newCondition();
+    private long changeCount;
+    private transient volatile Thread waitingThread;
 }
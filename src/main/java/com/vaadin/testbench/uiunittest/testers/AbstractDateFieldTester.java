@@ -9,7 +9,6 @@
 package com.vaadin.testbench.uiunittest.testers;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -46,62 +45,57 @@ public class AbstractDateFieldTester<T extends Temporal & TemporalAdjuster & Ser
      *            String value
      */
     public void setInput(String value) {
-        AbstractDateField<T, R> dateField = getComponent();
-        assert (isInteractable()) : "Can't set value to readonly, hidden or disabled field";
-        dateField.focus();
+        action("setInput", () -> {
+            AbstractDateField<T, R> dateField = getComponent();
+            assert (isInteractable()) : "Can't set value to readonly, hidden or disabled field";
+            dateField.focus();
 
-        Map<String, Integer> resolutions = new HashMap<>();
-        String format = dateField.getDateFormat();
-        DateTimeFormatter formatter;
-        if (format == null) {
-            formatter = DateTimeFormatter
-                    .ofLocalizedDateTime(FormatStyle.MEDIUM)
-                    .withLocale(UI.getCurrent().getLocale());
-        } else {
-            formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd[ HH:mm:ss]",
-                    Locale.ENGLISH);
-        }
-        try {
-            TemporalAccessor temporal = formatter.parse(value);
+            Map<String, Integer> resolutions = new HashMap<>();
+            String format = dateField.getDateFormat();
+            DateTimeFormatter formatter;
+            if (format == null) {
+                formatter = DateTimeFormatter
+                        .ofLocalizedDateTime(FormatStyle.MEDIUM)
+                        .withLocale(UI.getCurrent().getLocale());
+            } else {
+                formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd[ HH:mm:ss]",
+                        Locale.ENGLISH);
+            }
             try {
-                LocalDateTime date = LocalDateTime.from(temporal);
-                resolutions.put(DateTimeResolution.HOUR.name(), date.getHour());
-                resolutions.put(DateTimeResolution.MINUTE.name(),
-                        date.getMinute());
-                resolutions.put(DateTimeResolution.SECOND.name(),
-                        date.getSecond());
-                resolutions.put(DateTimeResolution.MONTH.name(),
-                        date.getMonthValue());
-                resolutions.put(DateTimeResolution.DAY.name(),
-                        date.getDayOfMonth());
-                resolutions.put(DateTimeResolution.YEAR.name(), date.getYear());
-            } catch (DateTimeException e) {
-                LocalDate date = LocalDate.from(temporal);
-                resolutions.put(DateTimeResolution.MONTH.name(),
-                        date.getMonthValue());
-                resolutions.put(DateTimeResolution.DAY.name(),
-                        date.getDayOfMonth());
-                resolutions.put(DateTimeResolution.YEAR.name(), date.getYear());
+                TemporalAccessor temporal = formatter.parse(value);
+                try {
+                    LocalDateTime date = LocalDateTime.from(temporal);
+                    resolutions.put(DateTimeResolution.HOUR.name(), date.getHour());
+                    resolutions.put(DateTimeResolution.MINUTE.name(),
+                            date.getMinute());
+                    resolutions.put(DateTimeResolution.SECOND.name(),
+                            date.getSecond());
+                    resolutions.put(DateTimeResolution.MONTH.name(),
+                            date.getMonthValue());
+                    resolutions.put(DateTimeResolution.DAY.name(),
+                            date.getDayOfMonth());
+                    resolutions.put(DateTimeResolution.YEAR.name(), date.getYear());
+                } catch (DateTimeException e) {
+                    LocalDate date = LocalDate.from(temporal);
+                    resolutions.put(DateTimeResolution.MONTH.name(),
+                            date.getMonthValue());
+                    resolutions.put(DateTimeResolution.DAY.name(),
+                            date.getDayOfMonth());
+                    resolutions.put(DateTimeResolution.YEAR.name(), date.getYear());
+                }
+            } catch (DateTimeParseException e) {
             }
-        } catch (DateTimeParseException e) {
-        }
 
-        Class<?> clazz = getComponent().getClass();
-        while (!clazz.equals(AbstractDateField.class)) {
-            clazz = clazz.getSuperclass();
-        }
-        try {
-            Field rpcField = clazz.getDeclaredField("rpc");
-            rpcField.setAccessible(true);
-            AbstractDateFieldServerRpc rpc = (AbstractDateFieldServerRpc) rpcField
-                    .get(dateField);
-            rpc.update(value, resolutions);
-        } catch (NoSuchFieldException | SecurityException
-                | IllegalArgumentException | IllegalAccessException e) {
-            throw new RuntimeException(
-                    "Failed to invoke AbstractDateField's rpc.update reflectively",
-                    e);
-        }
+            try {
+                AbstractDateFieldServerRpc rpc = (AbstractDateFieldServerRpc) Accessors
+                        .field(AbstractDateField.class, "rpc").get(dateField);
+                rpc.update(value, resolutions);
+            } catch (IllegalStateException e) {
+                throw new RuntimeException(
+                        "Failed to invoke AbstractDateField's rpc.update reflectively",
+                        e);
+            }
+        });
     }
 
     @SuppressWarnings("unchecked")
@@ -9,7 +9,6 @@
 package com.vaadin.testbench.uiunittest.testers;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
 import com.vaadin.ui.AbstractField;
 import com.vaadin.ui.Component.Focusable;
@@ -24,26 +23,21 @@ public class AbstractFieldTester<T> extends Tester<AbstractField<T>>
 
     @Override
     public void setValue(T value) {
-        assert (isInteractable()) : "Can't set value to readonly, hidden or disabled field";
-        if (getComponent() instanceof Focusable) {
-            focus();
-        }
-        Class<?> clazz = getComponent().getClass();
-        while (!clazz.equals(AbstractField.class)) {
-            clazz = clazz.getSuperclass();
-        }
-        try {
-            Method setValueMethod = clazz.getDeclaredMethod("setValue",
-                    Object.class, Boolean.TYPE);
-            setValueMethod.setAccessible(true);
-            setValueMethod.invoke(getComponent(), value, true);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException e) {
-            throw new RuntimeException(
-                    "Failed to invoke AbstractField.setValue reflectively", e);
-        } catch (InvocationTargetException e) {
-            // Ignore
-        }
+        action("setValue", () -> {
+            assert (isInteractable()) : "Can't set value to readonly, hidden or disabled field";
+            if (getComponent() instanceof Focusable) {
+                focus();
+            }
+            try {
+                Accessors.method(AbstractField.class, "setValue", Object.class,
+                        Boolean.TYPE).invoke(getComponent(), value, true);
+            } catch (IllegalStateException e) {
+                throw new RuntimeException(
+                        "Failed to invoke AbstractField.setValue reflectively", e);
+            } catch (InvocationTargetException e) {
+                // Ignore
+            }
+        });
     }
 
     /**
@@ -9,11 +9,16 @@
 package com.vaadin.testbench.uiunittest.testers;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.vaadin.ui.AbstractMultiSelect;
 import com.vaadin.ui.Component.Focusable;
@@ -34,38 +39,111 @@ public class AbstractMultiSelectTester<T>
      *            Item to click
      */
     public void clickItem(T item) {
-        Set<T> value = getComponent().getValue().stream()
-                .map(Objects::requireNonNull)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
-        if (value.contains(item)) {
-            value.remove(item);
-            setValue(value);
-        } else {
-            value.add(item);
-            setValue(value);
-        }
+        action("clickItem", () -> {
+            Objects.requireNonNull(item);
+            Set<T> items = new LinkedHashSet<>();
+            items.add(item);
+            // getSelectedItems() would copy the whole selection on each click
+            if (getComponent().isSelected(item)) {
+                updateSelection(new LinkedHashSet<>(), items);
+            } else {
+                updateSelection(items, new LinkedHashSet<>());
+            }
+        });
+    }
+
+    /**
+     * Simulate selecting a range of items by their position in the component.
+     * The items are added to the current selection with a single value change
+     * event.
+     *
+     * @param firstIndex
+     *            Index of the first item
+     * @param count
+     *            Number of items
+     */
+    public void selectRange(int firstIndex, int count) {
+        action("selectRange", () -> {
+            assert (firstIndex > -1 && count > -1) : "Range out of bounds";
+            List<T> items = getComponent().getDataCommunicator()
+                    .fetchItemsWithRange(firstIndex, count);
+            assert (items.size() == count) : "Range out of bounds";
+            updateSelection(new LinkedHashSet<>(items), new LinkedHashSet<>());
+        });
+    }
+
+    /**
+     * Simulate selecting the items matching the predicate. The items are
+     * added to the current selection with a single value change event.
+     *
+     * @param predicate
+     *            The predicate
+     */
+    public void selectWhere(Predicate<T> predicate) {
+        action("selectWhere", () -> {
+            assert (predicate != null) : "Predicate can't be null";
+            updateSelection(items().filter(predicate).collect(
+                    Collectors.toCollection(LinkedHashSet::new)),
+                    new LinkedHashSet<>());
+        });
+    }
+
+    /**
+     * Simulate selecting all items of the data provider with a single value
+     * change event.
+     */
+    public void selectAll() {
+        action("selectAll", () -> {
+            updateSelection(
+                    items().collect(
+                            Collectors.toCollection(LinkedHashSet::new)),
+                    new LinkedHashSet<>());
+        });
+    }
+
+    /**
+     * Simulate inverting the selection, i.e. the selected items are deselected
+     * and the other items are selected with a single value change event.
+     */
+    public void invertSelection() {
+        action("invertSelection", () -> {
+            Set<T> selected = getComponent().getSelectedItems();
+            updateSelection(
+                    items().filter(item -> !selected.contains(item)).collect(
+                            Collectors.toCollection(LinkedHashSet::new)),
+                    new LinkedHashSet<>(selected));
+        });
+    }
+
+    private Stream<T> items() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new DataPageIterator<>(getComponent().getDataCommunicator(),
+                        GridRowCache.PAGE_SIZE),
+                Spliterator.ORDERED), false);
     }
 
     protected void setValue(Set<T> value) {
+        Set<T> added = value.stream().map(Objects::requireNonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Set<T> selected = getComponent().getSelectedItems();
+        Set<T> removed = new LinkedHashSet<>(selected);
+        removed.removeAll(added);
+        added.removeAll(selected);
+        updateSelection(added, removed);
+    }
+
+    // Applies the difference to the selection with one user originated event
+    private void updateSelection(Set<T> added, Set<T> removed) {
         assert (isInteractable()) : "Can't set value to readonly, hidden or disabled field";
         AbstractMultiSelect<T> field = getComponent();
         if (field instanceof Focusable) {
             focus();
         }
-        Set<T> copy = value.stream().map(Objects::requireNonNull)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
-        Class<?> clazz = field.getClass();
-        while (!clazz.equals(AbstractMultiSelect.class)) {
-            clazz = clazz.getSuperclass();
-        }
         try {
-            Method updateSelectionMethod = clazz.getDeclaredMethod(
-                    "updateSelection", Set.class, Set.class, Boolean.TYPE);
-            updateSelectionMethod.setAccessible(true);
-            updateSelectionMethod.invoke(field, copy,
-                    new LinkedHashSet<>(field.getSelectedItems()), true);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException e) {
+            Accessors.method(AbstractMultiSelect.class, "updateSelection",
+                    Set.class, Set.class, Boolean.TYPE)
+                    .invoke(field, added, removed, true);
+        } catch (IllegalStateException e) {
             throw new RuntimeException(
                     "Failed to invoke AbstractMultiSelect.updateSelection reflectively",
                     e);
@@ -9,7 +9,6 @@
 package com.vaadin.testbench.uiunittest.testers;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 
 import com.vaadin.ui.AbstractSingleSelect;
 import com.vaadin.ui.Component.Focusable;
@@ -30,25 +29,21 @@ public class AbstractSingleSelectTester<T>
      *            Item to click
      */
     public void clickItem(T item) {
-        assert (isInteractable()) : "Can't set value to readonly, hidden or disabled field";
-        setValue(item);
+        action("clickItem", () -> {
+            assert (isInteractable()) : "Can't set value to readonly, hidden or disabled field";
+            setValue(item);
+        });
     }
 
     protected void setValue(T value) {
         if (getComponent() instanceof Focusable) {
             focus();
         }
-        Class<?> clazz = getComponent().getClass();
-        while (!clazz.equals(AbstractSingleSelect.class)) {
-            clazz = clazz.getSuperclass();
-        }
         try {
-            Method setSelectedItemMethod = clazz.getDeclaredMethod(
-                    "setSelectedItem", Object.class, Boolean.TYPE);
-            setSelectedItemMethod.setAccessible(true);
-            setSelectedItemMethod.invoke(getComponent(), value, true);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException e) {
+            Accessors.method(AbstractSingleSelect.class, "setSelectedItem",
+                    Object.class, Boolean.TYPE)
+                    .invoke(getComponent(), value, true);
+        } catch (IllegalStateException e) {
             throw new RuntimeException(
                     "Failed to invoke AbstractSingleSelect.setSelectedItem reflectively",
                     e);
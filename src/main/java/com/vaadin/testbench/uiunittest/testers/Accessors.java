@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.testers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of cached accessors to the non-public Vaadin internals used by the
+ * testers. Each member is resolved once per class, searching the class and its
+ * superclasses, into a {@link MethodHandle} which is then reused for all
+ * following interactions.
+ */
+@SuppressWarnings("java:S3011")
+public final class Accessors {
+
+    private static final ClassValue<ConcurrentMap<String, Object>> CACHE = new ClassValue<ConcurrentMap<String, Object>>() {
+        @Override
+        protected ConcurrentMap<String, Object> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private Accessors() {
+        // Utility class
+    }
+
+    /**
+     * Get the cached accessor for the method with given name and parameter
+     * types declared in the class or in one of its superclasses.
+     *
+     * @param type
+     *            The class where the search starts
+     * @param name
+     *            The name of the method
+     * @param parameterTypes
+     *            The parameter types of the method
+     * @return MethodAccessor
+     * @throws IllegalStateException
+     *             if the method does not exist
+     */
+    public static MethodAccessor method(Class<?> type, String name,
+            Class<?>... parameterTypes) {
+        StringBuilder key = new StringBuilder(name).append('(');
+        for (Class<?> parameterType : parameterTypes) {
+            key.append(parameterType.getName()).append(',');
+        }
+        key.append(')');
+        ConcurrentMap<String, Object> members = CACHE.get(type);
+        String memberKey = key.toString();
+        Object accessor = members.get(memberKey);
+        if (accessor == null) {
+            accessor = new MethodAccessor(
+                    findMethod(type, name, parameterTypes));
+            Object existing = members.putIfAbsent(memberKey, accessor);
+            if (existing != null) {
+                accessor = existing;
+            }
+        }
+        return (MethodAccessor) accessor;
+    }
+
+    /**
+     * Get the cached accessor for the field with given name declared in the
+     * class or in one of its superclasses.
+     *
+     * @param type
+     *            The class where the search starts
+     * @param name
+     *            The name of the field
+     * @return FieldAccessor
+     * @throws IllegalStateException
+     *             if the field does not exist
+     */
+    public static FieldAccessor field(Class<?> type, String name) {
+        ConcurrentMap<String, Object> members = CACHE.get(type);
+        Object accessor = members.get(name);
+        if (accessor == null) {
+            accessor = new FieldAccessor(findField(type, name));
+            Object existing = members.putIfAbsent(name, accessor);
+            if (existing != null) {
+                accessor = existing;
+            }
+        }
+        return (FieldAccessor) accessor;
+    }
+
+    private static Method findMethod(Class<?> type, String name,
+            Class<?>[] parameterTypes) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz
+                .getSuperclass()) {
+            try {
+                return clazz.getDeclaredMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                // Continue with the superclass
+            }
+        }
+        throw new IllegalStateException("Method " + name + " not found in "
+                + type.getName() + " or its superclasses");
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz
+                .getSuperclass()) {
+            try {
+                return clazz.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                // Continue with the superclass
+            }
+        }
+        throw new IllegalStateException("Field " + name + " not found in "
+                + type.getName() + " or its superclasses");
+    }
+
+    /**
+     * Cached accessor of an instance method.
+     */
+    public static final class MethodAccessor {
+        private final Method method;
+        private final Class<?>[] parameterTypes;
+        private final boolean[] primitive;
+        private final MethodHandle handle;
+
+        private MethodAccessor(Method method) {
+            this.method = method;
+            parameterTypes = method.getParameterTypes();
+            primitive = new boolean[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                primitive[i] = parameterTypes[i].isPrimitive();
+                parameterTypes[i] = MethodType.methodType(parameterTypes[i])
+                        .wrap().returnType();
+            }
+            try {
+                method.setAccessible(true);
+                MethodHandle unreflected = MethodHandles.lookup()
+                        .unreflect(method);
+                handle = unreflected.asType(unreflected.type().generic())
+                        .asSpreader(Object[].class,
+                                method.getParameterCount());
+            } catch (IllegalAccessException | SecurityException e) {
+                throw new IllegalStateException(
+                        "Failed to access method " + method.getName(), e);
+            }
+        }
+
+        /**
+         * Invoke the method on the target.
+         *
+         * @param target
+         *            The instance the method is invoked on
+         * @param args
+         *            The arguments of the method
+         * @return The return value of the method, null if it is void
+         * @throws InvocationTargetException
+         *             if the invoked method throws an exception
+         * @throws IllegalStateException
+         *             if the target or the arguments do not match the method
+         */
+        public Object invoke(Object target, Object... args)
+                throws InvocationTargetException {
+            // Mismatches would fail in the adapters of the handle, which
+            // can't be told apart from exceptions of the method
+            checkArguments(target, args);
+            try {
+                return (Object) handle.invokeExact(target, args);
+            } catch (WrongMethodTypeException e) {
+                throw new IllegalStateException(
+                        "Invalid accessor of method " + method.getName(), e);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        private void checkArguments(Object target, Object[] args) {
+            if (!method.getDeclaringClass().isInstance(target)) {
+                throw new IllegalStateException("Can't invoke method "
+                        + method.getName() + " of "
+                        + method.getDeclaringClass().getName() + " on "
+                        + (target == null ? "null"
+                                : target.getClass().getName()));
+            }
+            int count = args == null ? 0 : args.length;
+            if (count != parameterTypes.length) {
+                throw new IllegalStateException("Method " + method.getName()
+                        + " takes " + parameterTypes.length
+                        + " arguments, but got " + count);
+            }
+            for (int i = 0; i < count; i++) {
+                Object arg = args[i];
+                if (arg == null ? primitive[i]
+                        : !parameterTypes[i].isInstance(arg)) {
+                    throw new IllegalStateException("Argument " + i
+                            + " of method " + method.getName()
+                            + " must be " + parameterTypes[i].getName()
+                            + ", but got "
+                            + (arg == null ? "null"
+                                    : arg.getClass().getName()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Cached accessor of an instance field.
+     */
+    public static final class FieldAccessor {
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private FieldAccessor(Field field) {
+            name = field.getName();
+            try {
+                field.setAccessible(true);
+                getter = MethodHandles.lookup().unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class,
+                                Object.class));
+            } catch (IllegalAccessException | SecurityException e) {
+                throw new IllegalStateException(
+                        "Failed to access field " + name, e);
+            }
+            MethodHandle fieldSetter;
+            try {
+                fieldSetter = MethodHandles.lookup().unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class,
+                                Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                fieldSetter = null;
+            }
+            setter = fieldSetter;
+        }
+
+        /**
+         * Read the value of the field.
+         *
+         * @param target
+         *            The instance the field is read from
+         * @return The value of the field
+         */
+        public Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to read field " + name,
+                        t);
+            }
+        }
+
+        /**
+         * Write the value of the field.
+         *
+         * @param target
+         *            The instance the field is written to
+         * @param value
+         *            The new value
+         */
+        public void set(Object target, Object value) {
+            if (setter == null) {
+                throw new IllegalStateException(
+                        "Field " + name + " is not writable");
+            }
+            try {
+                setter.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(
+                        "Failed to write field " + name, t);
+            }
+        }
+    }
+}
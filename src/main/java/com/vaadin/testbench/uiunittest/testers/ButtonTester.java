@@ -22,11 +22,13 @@ public class ButtonTester extends Tester<Button> {
      * side effect.
      */
     public void click() {
-        assert (isInteractable()) : "Button is not enabled or visible";
-        focus();
-        getComponent().click();
-        if (getComponent().isDisableOnClick()) {
-            getComponent().setEnabled(false);
-        }
+        action("click", () -> {
+            assert (isInteractable()) : "Button is not enabled or visible";
+            focus();
+            getComponent().click();
+            if (getComponent().isDisableOnClick()) {
+                getComponent().setEnabled(false);
+            }
+        });
     }
 }
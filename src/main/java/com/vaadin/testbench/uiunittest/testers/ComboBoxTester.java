@@ -8,10 +8,12 @@
  */
 package com.vaadin.testbench.uiunittest.testers;
 
-import java.lang.reflect.Field;
 import java.util.List;
 
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.ListDataProvider;
 import com.vaadin.shared.ui.combobox.ComboBoxServerRpc;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
 import com.vaadin.ui.ComboBox;
 
 @SuppressWarnings("java:S3011")
@@ -31,31 +33,81 @@ public class ComboBoxTester<T> extends AbstractSingleSelectTester<T> {
      *            String value
      */
     public void setInput(String value) {
-        ComboBox<T> comboBox = getComponent();
-        assert (isInteractable()) : "Cannot set input to readonly, disabled or hidden ComboBox";
-        assert (comboBox
-                .isTextInputAllowed()) : "ComboBox has filter field disabled";
-        comboBox.focus();
-        Class<?> clazz = getComponent().getClass();
-        while (!clazz.equals(ComboBox.class)) {
-            clazz = clazz.getSuperclass();
-        }
-        try {
-            Field rpcField = clazz.getDeclaredField("rpc");
-            rpcField.setAccessible(true);
-            ComboBoxServerRpc rpc = (ComboBoxServerRpc) rpcField.get(comboBox);
+        action("setInput", () -> {
+            ComboBox<T> comboBox = getComponent();
+            assert (isInteractable()) : "Cannot set input to readonly, disabled or hidden ComboBox";
+            assert (comboBox
+                    .isTextInputAllowed()) : "ComboBox has filter field disabled";
+            comboBox.focus();
+            ComboBoxServerRpc rpc;
+            try {
+                rpc = (ComboBoxServerRpc) Accessors.field(ComboBox.class, "rpc")
+                        .get(comboBox);
+            } catch (IllegalStateException e) {
+                e.printStackTrace();
+                return;
+            }
             rpc.setFilter(value);
-            List<T> items = comboBox.getDataCommunicator()
-                    .fetchItemsWithRange(0, 2);
+            List<T> items = comboBox.getDataCommunicator().fetchItemsWithRange(0,
+                    2);
             if (items.size() == 1) {
                 setValue(items.get(0));
-            } else if (items.isEmpty()
-                    && comboBox.getNewItemProvider() != null) {
+            } else if (items.isEmpty() && comboBox.getNewItemProvider() != null) {
                 rpc.createNewItem(value);
             }
-        } catch (NoSuchFieldException | SecurityException
-                | IllegalArgumentException | IllegalAccessException e) {
-            e.printStackTrace();
+        });
+    }
+
+    /**
+     * Wrap the data provider of the ComboBox with a
+     * {@link CountingDataProvider} to record the queries made by the ComboBox
+     * and the tester, e.g. when filtering with {@link #setInput(String)}.
+     * The data provider must use String filters, e.g. one set with
+     * {@link ComboBox#setDataProvider(com.vaadin.ui.ComboBox.FetchItemsCallback, com.vaadin.server.SerializableToIntFunction)}.
+     * Returns the counter of the installed wrapper if the data provider is
+     * already wrapped.
+     * <p>
+     * <em>Warning</em>: This is not a read-only call. It replaces the data
+     * provider of the ComboBox under test, which resets its state, so call it
+     * before interacting with the ComboBox. While the wrapper is installed,
+     * {@link ComboBox#getDataProvider()} returns the wrapper, thus application
+     * code which casts it to the original type fails. Use
+     * {@link #restoreDataProvider()} to install the original data provider
+     * again.
+     *
+     * @return The counter of the queries
+     */
+    @SuppressWarnings("unchecked")
+    public QueryCounter countQueries() {
+        try (Measurement measurement = measure("countQueries")) {
+            ComboBox<T> comboBox = getComponent();
+            DataProvider<T, ?> dataProvider = comboBox.getDataProvider();
+            if (dataProvider instanceof CountingDataProvider) {
+                return ((CountingDataProvider<T, ?>) dataProvider).getCounter();
+            }
+            assert !(dataProvider instanceof ListDataProvider) : "ComboBox has in-memory ListDataProvider, which does not do backend queries";
+            CountingDataProvider<T, String> counting = new CountingDataProvider<>(
+                    (DataProvider<T, String>) dataProvider);
+            comboBox.setDataProvider(counting);
+            return counting.getCounter();
+        }
+    }
+
+    /**
+     * Replace the wrapper installed by {@link #countQueries()} with the
+     * original data provider of the ComboBox. Does nothing if the wrapper is
+     * not installed.
+     */
+    @SuppressWarnings("unchecked")
+    public void restoreDataProvider() {
+        try (Measurement measurement = measure("restoreDataProvider")) {
+            ComboBox<T> comboBox = getComponent();
+            DataProvider<T, ?> dataProvider = comboBox.getDataProvider();
+            if (dataProvider instanceof CountingDataProvider) {
+                comboBox.setDataProvider(
+                        ((CountingDataProvider<T, String>) dataProvider)
+                                .getDelegate());
+            }
         }
     }
 
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.testers;
+
+import java.util.stream.Stream;
+
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.DataProviderListener;
+import com.vaadin.data.provider.HierarchicalDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.shared.Registration;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter.QueryType;
+
+/**
+ * DataProvider which delegates to another one and records the queries made to
+ * it in a {@link QueryCounter}. Refresh events of the delegate are delivered to
+ * the listeners of the wrapper.
+ *
+ * @see GridTester#countQueries()
+ * @see ComboBoxTester#countQueries()
+ *
+ * @param <T>
+ *            Type of the items
+ * @param <F>
+ *            Type of the filter
+ */
+@SuppressWarnings("serial")
+public class CountingDataProvider<T, F> implements DataProvider<T, F> {
+
+    private final DataProvider<T, F> delegate;
+    private final QueryCounter counter = new QueryCounter();
+
+    /**
+     * Create counting wrapper for the data provider.
+     *
+     * @param delegate
+     *            The data provider doing the queries
+     */
+    public CountingDataProvider(DataProvider<T, F> delegate) {
+        assert (delegate != null) : "Data provider can't be null";
+        this.delegate = delegate;
+    }
+
+    /**
+     * Wrap the data provider with {@link CountingHierarchicalDataProvider} if
+     * it is hierarchical, otherwise with CountingDataProvider.
+     *
+     * @param dataProvider
+     *            The data provider
+     * @return Counting wrapper
+     */
+    static <T, F> CountingDataProvider<T, F> wrap(
+            DataProvider<T, F> dataProvider) {
+        if (dataProvider instanceof HierarchicalDataProvider) {
+            return new CountingHierarchicalDataProvider<>(
+                    (HierarchicalDataProvider<T, F>) dataProvider);
+        }
+        return new CountingDataProvider<>(dataProvider);
+    }
+
+    /**
+     * Get the wrapped data provider.
+     *
+     * @return DataProvider
+     */
+    public DataProvider<T, F> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the counter of the queries made to this data provider.
+     *
+     * @return QueryCounter
+     */
+    public QueryCounter getCounter() {
+        return counter;
+    }
+
+    @Override
+    public int size(Query<T, F> query) {
+        counter.record(QueryType.SIZE, query.getOffset(), query.getLimit());
+        return delegate.size(query);
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, F> query) {
+        counter.record(QueryType.FETCH, query.getOffset(), query.getLimit());
+        return delegate.fetch(query);
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return delegate.isInMemory();
+    }
+
+    @Override
+    public Object getId(T item) {
+        return delegate.getId(item);
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        delegate.refreshItem(item);
+    }
+
+    @Override
+    public void refreshAll() {
+        delegate.refreshAll();
+    }
+
+    @Override
+    public Registration addDataProviderListener(
+            DataProviderListener<T> listener) {
+        return delegate.addDataProviderListener(listener);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.testers;
+
+import java.util.stream.Stream;
+
+import com.vaadin.data.provider.HierarchicalDataProvider;
+import com.vaadin.data.provider.HierarchicalQuery;
+import com.vaadin.data.provider.Query;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter.QueryType;
+
+/**
+ * HierarchicalDataProvider which delegates to another one and counts the
+ * queries made to it.
+ *
+ * @see GridTester#countQueries()
+ *
+ * @param <T>
+ *            Type of the items
+ * @param <F>
+ *            Type of the filter
+ */
+@SuppressWarnings("serial")
+public class CountingHierarchicalDataProvider<T, F>
+        extends CountingDataProvider<T, F>
+        implements HierarchicalDataProvider<T, F> {
+
+    private final HierarchicalDataProvider<T, F> delegate;
+
+    /**
+     * Create counting wrapper for the data provider.
+     *
+     * @param delegate
+     *            The data provider doing the queries
+     */
+    public CountingHierarchicalDataProvider(
+            HierarchicalDataProvider<T, F> delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public HierarchicalDataProvider<T, F> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the number of fetchChildren calls since creation or reset.
+     *
+     * @return int value
+     */
+    public int getFetchChildrenCount() {
+        return getCounter().getCount(QueryType.FETCH_CHILDREN);
+    }
+
+    /**
+     * Get the number of hasChildren calls since creation or reset.
+     *
+     * @return int value
+     */
+    public int getHasChildrenCount() {
+        return getCounter().getCount(QueryType.HAS_CHILDREN);
+    }
+
+    /**
+     * Get the number of getChildCount calls since creation or reset.
+     *
+     * @return int value
+     */
+    public int getSizeCount() {
+        return getCounter().getCount(QueryType.SIZE);
+    }
+
+    /**
+     * Reset the counters to zero.
+     */
+    public void reset() {
+        getCounter().reset();
+    }
+
+    @Override
+    public int getChildCount(HierarchicalQuery<T, F> query) {
+        getCounter().record(QueryType.SIZE, query.getOffset(),
+                query.getLimit());
+        return delegate.getChildCount(query);
+    }
+
+    @Override
+    public Stream<T> fetchChildren(HierarchicalQuery<T, F> query) {
+        getCounter().record(QueryType.FETCH_CHILDREN, query.getOffset(),
+                query.getLimit());
+        return delegate.fetchChildren(query);
+    }
+
+    @Override
+    public boolean hasChildren(T item) {
+        getCounter().record(QueryType.HAS_CHILDREN, -1, -1);
+        return delegate.hasChildren(item);
+    }
+
+    @Override
+    public int size(Query<T, F> query) {
+        if (query instanceof HierarchicalQuery) {
+            return getChildCount((HierarchicalQuery<T, F>) query);
+        }
+        return super.size(query);
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, F> query) {
+        if (query instanceof HierarchicalQuery) {
+            return fetchChildren((HierarchicalQuery<T, F>) query);
+        }
+        return super.fetch(query);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.testers;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.testbench.uiunittest.metrics.Metrics;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
+
+/**
+ * Iterates the items of a DataCommunicator in its current sort order and
+ * filter, fetching one page at a time. The iteration ends at the first page
+ * which has less items than the page size.
+ *
+ * @param <T>
+ *            Type of the items
+ */
+class DataPageIterator<T> implements Iterator<T> {
+    private final DataCommunicator<T> communicator;
+    private final int pageSize;
+    private List<T> page = Collections.emptyList();
+    private int offset;
+    private int index;
+    private boolean last;
+
+    DataPageIterator(DataCommunicator<T> communicator, int pageSize) {
+        assert (communicator != null) : "DataCommunicator can't be null";
+        assert (pageSize > 0) : "Page size must be greater than zero";
+        this.communicator = communicator;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (index < page.size()) {
+            return true;
+        }
+        if (last) {
+            return false;
+        }
+        try (Measurement measurement = Metrics.measure(DataPageIterator.class,
+                "fetchPage")) {
+            offset += page.size();
+            page = communicator.fetchItemsWithRange(offset, pageSize);
+        }
+        index = 0;
+        last = page.size() < pageSize;
+        return !page.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.testers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.vaadin.data.provider.DataChangeEvent;
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.DataProviderListener;
+import com.vaadin.data.provider.QuerySortOrder;
+import com.vaadin.event.CollapseEvent;
+import com.vaadin.event.CollapseEvent.CollapseListener;
+import com.vaadin.event.ExpandEvent;
+import com.vaadin.event.ExpandEvent.ExpandListener;
+import com.vaadin.server.AbstractClientConnector;
+import com.vaadin.shared.Registration;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.Column;
+import com.vaadin.ui.HasComponents.ComponentAttachEvent;
+import com.vaadin.ui.HasComponents.ComponentDetachEvent;
+import com.vaadin.ui.TreeGrid;
+
+/**
+ * Window of rows of a Grid and the size of its data, shared by the testers of
+ * the same Grid. The rows are fetched from the DataCommunicator one page at a
+ * time. The window is invalidated when the DataProvider fires a change event,
+ * except for refresh of a single item which replaces only that item, when the
+ * DataProvider, filter or sort order of the Grid changes and when items of a
+ * TreeGrid are expanded or collapsed. Components generated by
+ * component columns for the rows of the window are cached too, and they are
+ * removed from the Grid when their rows leave the window.
+ * <p>
+ * The caches are kept per thread until they are released with
+ * {@link #releaseAll()}, which UIUnitTest does in tearDown and before each
+ * session round trip. The caches must not outlive the test, as they and the
+ * listeners they add to the DataProvider and the TreeGrid reference the Grid,
+ * and thus its UI and session.
+ *
+ * @param <T>
+ *            Type of the items
+ */
+final class GridRowCache<T> {
+
+    static final int PAGE_SIZE = 50;
+
+    private static final ThreadLocal<Map<Grid<?>, GridRowCache<?>>> caches = ThreadLocal
+            .withInitial(IdentityHashMap::new);
+
+    private final Invalidator<T> invalidator = new Invalidator<>(this);
+    private final Grid<T> grid;
+    private final List<Registration> registrations = new ArrayList<>();
+    private DataProvider<T, ?> dataProvider;
+    private Registration dataProviderRegistration;
+    private Object filter;
+    private Comparator<T> inMemorySorting;
+    private List<QuerySortOrder> backEndSorting = Collections.emptyList();
+    private int size = -1;
+    private int offset;
+    private List<T> rows = Collections.emptyList();
+    private Map<Object, Integer> rowsById;
+    private final Map<Column<T, ?>, Map<Object, Integer>> rowsByValue = new HashMap<>();
+    private final Map<Column<T, ?>, Map<Object, Component>> components = new HashMap<>();
+
+    private GridRowCache(Grid<T> grid) {
+        this.grid = grid;
+    }
+
+    /**
+     * Get the row cache of the Grid in the current thread, created on first
+     * use.
+     *
+     * @param grid
+     *            The Grid
+     * @return GridRowCache
+     */
+    @SuppressWarnings("unchecked")
+    static <T> GridRowCache<T> of(Grid<T> grid) {
+        assert (grid != null) : "Grid can't be null";
+        return (GridRowCache<T>) caches.get().computeIfAbsent(grid, g -> {
+            GridRowCache<T> cache = new GridRowCache<>(grid);
+            if (grid instanceof TreeGrid) {
+                TreeGrid<T> treeGrid = (TreeGrid<T>) grid;
+                cache.registrations
+                        .add(treeGrid.addExpandListener(cache.invalidator));
+                cache.registrations
+                        .add(treeGrid.addCollapseListener(cache.invalidator));
+            }
+            return cache;
+        });
+    }
+
+    /**
+     * Release the row caches of the current thread. The cached components are
+     * removed from their Grids and the listeners of the caches are removed
+     * from the DataProviders and TreeGrids.
+     */
+    static void releaseAll() {
+        Map<Grid<?>, GridRowCache<?>> threadCaches = caches.get();
+        caches.remove();
+        threadCaches.values().forEach(GridRowCache::dispose);
+    }
+
+    private void dispose() {
+        invalidate();
+        if (dataProviderRegistration != null) {
+            dataProviderRegistration.remove();
+            dataProviderRegistration = null;
+        }
+        registrations.forEach(Registration::remove);
+        registrations.clear();
+        dataProvider = null;
+    }
+
+    /**
+     * Get the amount of rows, queries the DataProvider only if the window has
+     * been invalidated.
+     *
+     * @param grid
+     *            The Grid of the cache
+     * @return int value
+     */
+    int size(Grid<T> grid) {
+        validate(grid);
+        if (size < 0) {
+            size = grid.getDataCommunicator().getDataProviderSize();
+        }
+        return size;
+    }
+
+    /**
+     * Get the item of the row, fetches the page of the row if it is not in
+     * the window.
+     *
+     * @param grid
+     *            The Grid of the cache
+     * @param row
+     *            Row index
+     * @return The item
+     */
+    T get(Grid<T> grid, int row) {
+        validate(grid);
+        if (row < offset || row >= offset + rows.size()) {
+            load(grid, row - row % PAGE_SIZE, PAGE_SIZE);
+        }
+        return rows.get(row - offset);
+    }
+
+    /**
+     * Get the items of a range of rows, fetches the whole range at once if it
+     * is not in the window.
+     *
+     * @param grid
+     *            The Grid of the cache
+     * @param firstRow
+     *            Index of the first row
+     * @param count
+     *            Number of rows
+     * @return Unmodifiable list of items
+     */
+    List<T> get(Grid<T> grid, int firstRow, int count) {
+        validate(grid);
+        if (firstRow < offset || firstRow + count > offset + rows.size()) {
+            load(grid, firstRow, Math.max(count, PAGE_SIZE));
+        }
+        // Copy, as the window is replaced or refreshed later
+        return Collections.unmodifiableList(new ArrayList<>(
+                rows.subList(firstRow - offset, firstRow - offset + count)));
+    }
+
+    private void load(Grid<T> grid, int firstRow, int limit) {
+        offset = firstRow;
+        rows = new ArrayList<>(grid.getDataCommunicator()
+                .fetchItemsWithRange(firstRow, limit));
+        if (!components.isEmpty()) {
+            Set<Object> ids = rows.stream().map(dataProvider::getId)
+                    .collect(Collectors.toSet());
+            for (Map<Object, Component> columnComponents : components
+                    .values()) {
+                Iterator<Map.Entry<Object, Component>> entries = columnComponents
+                        .entrySet().iterator();
+                while (entries.hasNext()) {
+                    Map.Entry<Object, Component> entry = entries.next();
+                    if (!ids.contains(entry.getKey())) {
+                        release(grid, entry.getValue());
+                        entries.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the component generated by a component column for the item of a row
+     * in the window. The component is generated and added to the Grid on first
+     * use, and the same component is returned until the row leaves the window
+     * or the window is invalidated.
+     *
+     * @param grid
+     *            The Grid of the cache
+     * @param column
+     *            Column with ComponentRenderer
+     * @param item
+     *            The item
+     * @return The component
+     */
+    Component component(Grid<T> grid, Column<T, ?> column, T item) {
+        validate(grid);
+        Map<Object, Component> columnComponents = components
+                .computeIfAbsent(column, c -> new HashMap<>());
+        Object id = dataProvider.getId(item);
+        Component component = columnComponents.get(id);
+        if (component == null) {
+            component = (Component) column.getValueProvider().apply(item);
+            // Call grid.addExtensionComponent(c) with reflection
+            try {
+                Accessors.method(Grid.class, "addExtensionComponent",
+                        Component.class).invoke(grid, component);
+                Accessors.method(AbstractClientConnector.class, "fireEvent",
+                        EventObject.class).invoke(grid,
+                                new ComponentAttachEvent(grid, component));
+            } catch (IllegalStateException | InvocationTargetException e) {
+                throw new RuntimeException(
+                        "Failed to invoke Grid.addExtensionComponent reflectively",
+                        e);
+            }
+            grid.getUI().getConnectorTracker().markDirty(grid);
+            columnComponents.put(id, component);
+        }
+        return component;
+    }
+
+    private static void release(Grid<?> grid, Component component) {
+        try {
+            Accessors.method(Grid.class, "removeExtensionComponent",
+                    Component.class).invoke(grid, component);
+            Accessors.method(AbstractClientConnector.class, "fireEvent",
+                    EventObject.class).invoke(grid,
+                            new ComponentDetachEvent(grid, component));
+        } catch (IllegalStateException | InvocationTargetException e) {
+            throw new RuntimeException(
+                    "Failed to invoke Grid.removeExtensionComponent reflectively",
+                    e);
+        }
+    }
+
+    /**
+     * Get the row of the item with the given id. The index of ids is built on
+     * first use with one pass over the data.
+     *
+     * @see DataProvider#getId(Object)
+     *
+     * @param grid
+     *            The Grid of the cache
+     * @param id
+     *            The id of the item
+     * @return Row index, -1 if there is no such item
+     */
+    int rowOfId(Grid<T> grid, Object id) {
+        validate(grid);
+        if (rowsById == null) {
+            rowsById = buildIndex(grid, dataProvider::getId);
+        }
+        return rowsById.getOrDefault(id, -1);
+    }
+
+    /**
+     * Get the first row where the column has the given value. The index of the
+     * values of the column is built on first use with one pass over the data.
+     *
+     * @param grid
+     *            The Grid of the cache
+     * @param column
+     *            The column
+     * @param value
+     *            The value as returned by the value provider of the column
+     * @return Row index, -1 if there is no such row
+     */
+    int rowOfValue(Grid<T> grid, Column<T, ?> column, Object value) {
+        validate(grid);
+        return rowsByValue
+                .computeIfAbsent(column,
+                        c -> buildIndex(grid, c.getValueProvider()::apply))
+                .getOrDefault(value, -1);
+    }
+
+    private Map<Object, Integer> buildIndex(Grid<T> grid,
+            Function<T, Object> key) {
+        Map<Object, Integer> index = new HashMap<>();
+        Iterator<T> iterator = new DataPageIterator<>(
+                grid.getDataCommunicator(), PAGE_SIZE);
+        for (int row = 0; iterator.hasNext(); row++) {
+            index.putIfAbsent(key.apply(iterator.next()), row);
+        }
+        return index;
+    }
+
+    /**
+     * Drop the cached rows, size and indexes, and remove the cached components
+     * from the Grid.
+     */
+    void invalidate() {
+        size = -1;
+        offset = 0;
+        rows = Collections.emptyList();
+        rowsById = null;
+        rowsByValue.clear();
+        components.values().forEach(columnComponents -> columnComponents
+                .values().forEach(component -> release(grid, component)));
+        components.clear();
+    }
+
+    /**
+     * Replace the refreshed item in the window and remove the components
+     * generated for it from the Grid. The size and the index of ids remain
+     * valid.
+     *
+     * @param item
+     *            The refreshed item
+     */
+    void refresh(T item) {
+        if (dataProvider == null) {
+            return;
+        }
+        Object id = dataProvider.getId(item);
+        rows.replaceAll(
+                row -> Objects.equals(dataProvider.getId(row), id) ? item : row);
+        rowsByValue.clear();
+        for (Map<Object, Component> columnComponents : components.values()) {
+            Component component = columnComponents.remove(id);
+            if (component != null) {
+                release(grid, component);
+            }
+        }
+    }
+
+    private void validate(Grid<T> grid) {
+        DataCommunicator<T> communicator = grid.getDataCommunicator();
+        DataProvider<T, ?> current = communicator.getDataProvider();
+        if (current != dataProvider) {
+            if (dataProviderRegistration != null) {
+                dataProviderRegistration.remove();
+            }
+            dataProvider = current;
+            dataProviderRegistration = current
+                    .addDataProviderListener(invalidator);
+            invalidate();
+        }
+        Object currentFilter = Accessors.field(DataCommunicator.class, "filter")
+                .get(communicator);
+        Comparator<T> currentInMemorySorting = communicator
+                .getInMemorySorting();
+        List<QuerySortOrder> currentBackEndSorting = communicator
+                .getBackEndSorting();
+        if (!Objects.equals(filter, currentFilter)
+                || inMemorySorting != currentInMemorySorting
+                || !backEndSorting.equals(currentBackEndSorting)) {
+            filter = currentFilter;
+            inMemorySorting = currentInMemorySorting;
+            backEndSorting = new ArrayList<>(currentBackEndSorting);
+            invalidate();
+        }
+    }
+
+    // Listeners are serialized with the Grid, e.g. in UISnapshot, hence the
+    // cache is not referenced from the serialized form
+    @SuppressWarnings("serial")
+    private static class Invalidator<T> implements DataProviderListener<T>,
+            ExpandListener<T>, CollapseListener<T> {
+        private final transient GridRowCache<T> cache;
+
+        Invalidator(GridRowCache<T> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void onDataChange(DataChangeEvent<T> event) {
+            if (event instanceof DataRefreshEvent) {
+                if (cache != null) {
+                    cache.refresh(((DataRefreshEvent<T>) event).getItem());
+                }
+            } else {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void itemExpand(ExpandEvent<T> event) {
+            invalidate();
+        }
+
+        @Override
+        public void itemCollapse(CollapseEvent<T> event) {
+            invalidate();
+        }
+
+        private void invalidate() {
+            if (cache != null) {
+                cache.invalidate();
+            }
+        }
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.testers;
+
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.data.provider.DataKeyMapper;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.shared.data.DataCommunicatorConstants;
+import com.vaadin.testbench.uiunittest.SerializationDebugUtil;
+import com.vaadin.testbench.uiunittest.metrics.Metrics;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter.QueryRecord;
+import com.vaadin.ui.Grid;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Simulation of the browser scrolling a Grid. Like the client side of the
+ * Grid, the simulation keeps a cache of rows around the viewport, requests
+ * the missing rows from the DataCommunicator with {@code onRequestRows} and
+ * drops the rows leaving the cache with {@code onDropRows}. The rows are then
+ * pushed by the DataCommunicator as in a server response, which runs the data
+ * generators and the active item tracking of the Grid.
+ * <p>
+ * Every scroll position is recorded as a {@link ScrollStep} with the backend
+ * queries it caused, the size of the KeyMapper and the active items after the
+ * response.
+ *
+ * @see GridTester#simulateScrolling(QueryCounter, int, int)
+ *
+ * @param <T>
+ *            Type of the items
+ */
+public class GridScrollSimulation<T> {
+
+    private final Grid<T> grid;
+    private final QueryCounter counter;
+    private final int viewportRows;
+    private final int cacheRows;
+    private final NavigableMap<Integer, String> cachedKeys = new TreeMap<>();
+    private final List<ScrollStep> steps = new ArrayList<>();
+    private int size = -1;
+
+    GridScrollSimulation(Grid<T> grid, QueryCounter counter, int viewportRows,
+            int cacheRows) {
+        assert (viewportRows > 0) : "Viewport must have at least one row";
+        assert (cacheRows > -1) : "Cache rows can't be negative";
+        this.grid = grid;
+        this.counter = counter;
+        this.viewportRows = viewportRows;
+        this.cacheRows = cacheRows;
+    }
+
+    /**
+     * Scroll the viewport so that the given row is the first visible row. On
+     * the first call the Grid is rendered like in the initial response.
+     *
+     * @param firstVisibleRow
+     *            Row index, clamped to the size of the data
+     * @return The recorded step
+     */
+    public ScrollStep scrollTo(int firstVisibleRow) {
+        try (Measurement measurement = Metrics
+                .measure(GridScrollSimulation.class, "scrollTo")) {
+            assert (firstVisibleRow > -1) : "Row can't be negative";
+            DataCommunicator<T> communicator = grid.getDataCommunicator();
+            int firstQuery = counter.getCount();
+            if (size < 0) {
+                communicator.retrievePendingRpcCalls();
+                communicator.beforeClientResponse(true);
+                receive(communicator);
+            }
+            int first = 0;
+            int requested = 0;
+            int dropped = 0;
+            // Rows are requested again if the server resets the client
+            for (int round = 0; round < 3; round++) {
+                first = Math.max(0,
+                        Math.min(firstVisibleRow, size - viewportRows));
+                int cacheStart = Math.max(0, first - cacheRows);
+                int cacheEnd = Math.min(size, first + viewportRows + cacheRows);
+                dropped += drop(communicator, cacheStart, cacheEnd);
+                int missingStart = cacheStart;
+                int missingEnd = cacheEnd;
+                if (!cachedKeys.isEmpty()) {
+                    if (cachedKeys.firstKey() <= cacheStart) {
+                        missingStart = Math.max(cacheStart,
+                                cachedKeys.lastKey() + 1);
+                    } else {
+                        missingEnd = cachedKeys.firstKey();
+                    }
+                }
+                if (missingStart >= missingEnd) {
+                    break;
+                }
+                int cachedStart = cachedKeys.isEmpty() ? 0
+                        : cachedKeys.firstKey();
+                invoke(communicator, "onRequestRows",
+                        new Class<?>[] { int.class, int.class, int.class,
+                                int.class },
+                        missingStart, missingEnd - missingStart, cachedStart,
+                        cachedKeys.size());
+                requested += missingEnd - missingStart;
+                communicator.beforeClientResponse(false);
+                receive(communicator);
+            }
+            List<QueryRecord> queries = counter.getQueries();
+            ScrollStep step = new ScrollStep(first, requested, dropped,
+                    new ArrayList<>(queries.subList(
+                            Math.min(firstQuery, queries.size()),
+                            queries.size())),
+                    keyMapperSize(communicator),
+                    activeKeys(communicator).size());
+            steps.add(step);
+            return step;
+        }
+    }
+
+    /**
+     * Scroll the viewport to each of the given rows in order.
+     *
+     * @param firstVisibleRows
+     *            Row indexes
+     * @return The recorded steps
+     */
+    public List<ScrollStep> scrollPath(int... firstVisibleRows) {
+        List<ScrollStep> path = new ArrayList<>();
+        for (int row : firstVisibleRows) {
+            path.add(scrollTo(row));
+        }
+        return path;
+    }
+
+    /**
+     * Scroll from the top of the Grid to the bottom, moving the viewport the
+     * given amount of rows at a time.
+     *
+     * @param rowsPerStep
+     *            Rows scrolled by each step
+     * @return The recorded steps
+     */
+    public List<ScrollStep> scrollThrough(int rowsPerStep) {
+        assert (rowsPerStep > 0) : "Step must be at least one row";
+        List<ScrollStep> path = new ArrayList<>();
+        ScrollStep step = scrollTo(0);
+        path.add(step);
+        while (step.getFirstVisibleRow() + viewportRows < size) {
+            step = scrollTo(step.getFirstVisibleRow() + rowsPerStep);
+            path.add(step);
+        }
+        return path;
+    }
+
+    /**
+     * Get all steps recorded by this simulation.
+     *
+     * @return Unmodifiable list of steps
+     */
+    public List<ScrollStep> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Get the size of the data as known by the simulated client.
+     *
+     * @return int value, -1 before the first step
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of rows currently cached by the simulated client.
+     *
+     * @return int value
+     */
+    public int getCachedRowCount() {
+        return cachedKeys.size();
+    }
+
+    /**
+     * Get the largest KeyMapper size after any step.
+     *
+     * @return int value
+     */
+    public int getMaxKeyMapperSize() {
+        return steps.stream().mapToInt(ScrollStep::getKeyMapperSize).max()
+                .orElse(0);
+    }
+
+    /**
+     * Get the largest number of active items after any step.
+     *
+     * @return int value
+     */
+    public int getMaxActiveItems() {
+        return steps.stream().mapToInt(ScrollStep::getActiveItems).max()
+                .orElse(0);
+    }
+
+    /**
+     * Get the number of backend queries made during all steps.
+     *
+     * @return int value
+     */
+    public int getQueryCount() {
+        return steps.stream().mapToInt(step -> step.getQueries().size())
+                .sum();
+    }
+
+    /**
+     * Get the serialized size of the items currently active in the
+     * DataCommunicator, as an estimate of the memory they hold in the session.
+     *
+     * @return Size in bytes, -1 if the items are not serializable
+     */
+    public long getActiveItemsSerializedSize() {
+        try (Measurement measurement = Metrics
+                .measure(GridScrollSimulation.class, "serializedSize")) {
+            DataCommunicator<T> communicator = grid.getDataCommunicator();
+            DataKeyMapper<T> keyMapper = communicator.getKeyMapper();
+            ArrayList<T> items = new ArrayList<>();
+            for (String key : activeKeys(communicator)) {
+                items.add(keyMapper.get(key));
+            }
+            try {
+                return SerializationDebugUtil.serializedSize(items);
+            } catch (NotSerializableException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Assert that the KeyMapper of the Grid never held more than the given
+     * amount of keys after a step.
+     *
+     * @param max
+     *            Maximum number of keys
+     * @throws AssertionError
+     *             listing the steps if there were more
+     */
+    public void assertKeyMapperAtMost(int max) {
+        if (getMaxKeyMapperSize() > max) {
+            throw new AssertionError("Expected at most " + max
+                    + " keys in KeyMapper, but there were "
+                    + getMaxKeyMapperSize() + ": " + steps);
+        }
+    }
+
+    /**
+     * Assert that the Grid never had more than the given amount of active
+     * items after a step.
+     *
+     * @param max
+     *            Maximum number of active items
+     * @throws AssertionError
+     *             listing the steps if there were more
+     */
+    public void assertActiveItemsAtMost(int max) {
+        if (getMaxActiveItems() > max) {
+            throw new AssertionError("Expected at most " + max
+                    + " active items, but there were " + getMaxActiveItems()
+                    + ": " + steps);
+        }
+    }
+
+    private int drop(DataCommunicator<T> communicator, int cacheStart,
+            int cacheEnd) {
+        JsonArray keys = Json.createArray();
+        Iterator<Map.Entry<Integer, String>> entries = cachedKeys.entrySet()
+                .iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, String> entry = entries.next();
+            if (entry.getKey() < cacheStart || entry.getKey() >= cacheEnd) {
+                keys.set(keys.length(), entry.getValue());
+                entries.remove();
+            }
+        }
+        if (keys.length() > 0) {
+            invoke(communicator, "onDropRows",
+                    new Class<?>[] { JsonArray.class }, keys);
+        }
+        return keys.length();
+    }
+
+    /**
+     * Apply the pending client RPC calls of the DataCommunicator to the
+     * simulated client cache.
+     */
+    private void receive(DataCommunicator<T> communicator) {
+        for (ClientMethodInvocation invocation : communicator
+                .retrievePendingRpcCalls()) {
+            Object[] parameters = invocation.getParameters();
+            switch (invocation.getMethodName()) {
+            case "reset":
+                size = (Integer) parameters[0];
+                cachedKeys.clear();
+                break;
+            case "setData":
+                int firstIndex = (Integer) parameters[0];
+                JsonArray data = (JsonArray) parameters[1];
+                for (int i = 0; i < data.length(); i++) {
+                    JsonObject row = data.getObject(i);
+                    cachedKeys.put(firstIndex + i,
+                            row.getString(DataCommunicatorConstants.KEY));
+                }
+                break;
+            case "insertRows":
+                shift((Integer) parameters[0], (Integer) parameters[1]);
+                break;
+            case "removeRows":
+                int first = (Integer) parameters[0];
+                int count = (Integer) parameters[1];
+                cachedKeys.subMap(first, first + count).clear();
+                shift(first + count, -count);
+                break;
+            default:
+                // Updates of cached rows do not change the cache
+                break;
+            }
+        }
+    }
+
+    private void shift(int firstRow, int count) {
+        NavigableMap<Integer, String> tail = cachedKeys.tailMap(firstRow,
+                true);
+        NavigableMap<Integer, String> shifted = new TreeMap<>();
+        tail.forEach((row, key) -> shifted.put(row + count, key));
+        tail.clear();
+        cachedKeys.putAll(shifted);
+        size += count;
+    }
+
+    private int keyMapperSize(DataCommunicator<T> communicator) {
+        DataKeyMapper<T> keyMapper = communicator.getKeyMapper();
+        return ((Map<?, ?>) Accessors
+                .field(keyMapper.getClass(), "keyObjectMap").get(keyMapper))
+                .size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> activeKeys(DataCommunicator<T> communicator) {
+        Object handler = Accessors.field(DataCommunicator.class, "handler")
+                .get(communicator);
+        return (Set<String>) Accessors.field(handler.getClass(), "activeData")
+                .get(handler);
+    }
+
+    private static void invoke(DataCommunicator<?> communicator, String name,
+            Class<?>[] parameterTypes, Object... args) {
+        // Call the protected DataCommunicator RPC handler with reflection
+        try {
+            Accessors.method(DataCommunicator.class, name, parameterTypes)
+                    .invoke(communicator, args);
+        } catch (IllegalStateException | InvocationTargetException e) {
+            throw new RuntimeException("Failed to invoke DataCommunicator."
+                    + name + " reflectively", e);
+        }
+    }
+
+    /**
+     * A scroll position of the simulation and its effect on the server.
+     */
+    @SuppressWarnings("serial")
+    public static final class ScrollStep implements Serializable {
+        private final int firstVisibleRow;
+        private final int requestedRows;
+        private final int droppedRows;
+        private final List<QueryRecord> queries;
+        private final int keyMapperSize;
+        private final int activeItems;
+
+        ScrollStep(int firstVisibleRow, int requestedRows, int droppedRows,
+                List<QueryRecord> queries, int keyMapperSize,
+                int activeItems) {
+            this.firstVisibleRow = firstVisibleRow;
+            this.requestedRows = requestedRows;
+            this.droppedRows = droppedRows;
+            this.queries = Collections.unmodifiableList(queries);
+            this.keyMapperSize = keyMapperSize;
+            this.activeItems = activeItems;
+        }
+
+        /**
+         * Get the first visible row after the step.
+         *
+         * @return Row index
+         */
+        public int getFirstVisibleRow() {
+            return firstVisibleRow;
+        }
+
+        /**
+         * Get the number of rows requested from the server.
+         *
+         * @return int value
+         */
+        public int getRequestedRows() {
+            return requestedRows;
+        }
+
+        /**
+         * Get the number of rows dropped from the client cache.
+         *
+         * @return int value
+         */
+        public int getDroppedRows() {
+            return droppedRows;
+        }
+
+        /**
+         * Get the backend queries made during the step.
+         *
+         * @return Unmodifiable list of queries
+         */
+        public List<QueryRecord> getQueries() {
+            return queries;
+        }
+
+        /**
+         * Get the number of keys in the KeyMapper after the step.
+         *
+         * @return int value
+         */
+        public int getKeyMapperSize() {
+            return keyMapperSize;
+        }
+
+        /**
+         * Get the number of active items after the step.
+         *
+         * @return int value
+         */
+        public int getActiveItems() {
+            return activeItems;
+        }
+
+        @Override
+        public String toString() {
+            return "ScrollStep[row=" + firstVisibleRow + ", requested="
+                    + requestedRows + ", dropped=" + droppedRows
+                    + ", queries=" + queries + ", keys=" + keyMapperSize
+                    + ", active=" + activeItems + "]";
+        }
+    }
+}
@@ -8,20 +8,27 @@
  */
 package com.vaadin.testbench.uiunittest.testers;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.EventObject;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.vaadin.data.ValidationException;
 import com.vaadin.data.ValueProvider;
+import com.vaadin.data.provider.DataProvider;
 import com.vaadin.data.provider.GridSortOrder;
 import com.vaadin.event.EventRouter;
 import com.vaadin.shared.MouseEventDetails;
@@ -29,9 +36,9 @@ import com.vaadin.shared.MouseEventDetails.MouseButton;
 import com.vaadin.shared.data.sort.SortDirection;
 import com.vaadin.shared.ui.grid.ColumnState;
 import com.vaadin.testbench.uiunittest.Utils;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.Grid;
-import com.vaadin.ui.HasComponents.ComponentAttachEvent;
 import com.vaadin.ui.Grid.Column;
 import com.vaadin.ui.components.grid.EditorCancelEvent;
 import com.vaadin.ui.components.grid.EditorImpl;
@@ -41,9 +48,13 @@ import com.vaadin.ui.components.grid.MultiSelectionModel;
 import com.vaadin.ui.components.grid.MultiSelectionModelImpl;
 import com.vaadin.ui.components.grid.SingleSelectionModel;
 import com.vaadin.ui.components.grid.SingleSelectionModelImpl;
+import com.vaadin.ui.renderers.ComponentRenderer;
+import com.vaadin.ui.renderers.Renderer;
 
 import elemental.json.Json;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
 
 @SuppressWarnings({ "java:S4274", "java:S3011" })
 public class GridTester<T> extends Tester<Grid<T>> {
@@ -58,10 +69,23 @@ public class GridTester<T> extends Tester<Grid<T>> {
         super(grid);
     }
 
+    /**
+     * Release the rows and components cached for the Grids tested in the
+     * current thread. The cached components are removed from the Grids and
+     * the listeners of the caches are removed from the DataProviders.
+     * {@link com.vaadin.testbench.uiunittest.UIUnitTest#tearDown()} calls
+     * this, so it needs to be called only by test bases which do not use it.
+     */
+    public static void releaseRowCaches() {
+        GridRowCache.releaseAll();
+    }
+
     /**
      * Return the content of the cell. If ComponentRenderer was used it is the
      * Component produced by the renderer otherwise it is the value. Asserts
-     * that column is visible.
+     * that column is visible. Like in the browser, the component of a row is
+     * generated once and it is reused until the row is refreshed or it is out
+     * of the cached rows, see {@link #item(int)}.
      *
      * @param column
      *            Column index including hidden columns
@@ -70,37 +94,21 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @return Cell content
      */
     public Object cell(int column, int row) {
-        assert (column > -1 && column < getComponent().getColumns()
-                .size()) : "Column out of bounds";
-        assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
-        assert (!getComponent().getColumns().get(column)
-                .isHidden()) : THE_COLUMN_IS_HIDDEN;
-        T cat = item(row);
-        ValueProvider<T, ?> vp = getComponent().getColumns().get(column)
-                .getValueProvider();
-        Object content = vp.apply(cat);
-        if (content instanceof Component) {
-            Component c = (Component) content;
-            Grid<T> grid = getComponent();
-            assert grid != null : "Grid is null";
-            // Call grid.addExtensionComponent(c) with reflection
-            try {
-                Method addExtensionComponentMethod = Grid.class
-                        .getDeclaredMethod("addExtensionComponent",
-                                Component.class);
-                addExtensionComponentMethod.setAccessible(true);
-                addExtensionComponentMethod.invoke(grid, c);
-            } catch (NoSuchMethodException | SecurityException
-                    | IllegalAccessException | IllegalArgumentException
-                    | InvocationTargetException e) {
-                throw new RuntimeException(
-                        "Failed to invoke Grid.addExtensionComponent reflectively",
-                        e);
+        try (Measurement measurement = measure("cell")) {
+            assert (column > -1 && column < getComponent().getColumns()
+                    .size()) : "Column out of bounds";
+            assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
+            assert (!getComponent().getColumns().get(column)
+                    .isHidden()) : THE_COLUMN_IS_HIDDEN;
+            T cat = item(row);
+            Column<T, ?> col = getComponent().getColumns().get(column);
+            if (col.getRenderer() instanceof ComponentRenderer) {
+                return GridRowCache.of(getComponent())
+                        .component(getComponent(), col, cat);
             }
-            fireSimulatedEvent(new ComponentAttachEvent(grid, c));
-            grid.getUI().getConnectorTracker().markDirty(grid);
+            Object content = col.getValueProvider().apply(cat);
+            return content;
         }
-        return content;
     }
 
     /**
@@ -111,10 +119,12 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @return Description String
      */
     public String description(int row) {
-        assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
-        assert getComponent()
-                .getDescriptionGenerator() != null : "No description generator set for the row";
-        return getComponent().getDescriptionGenerator().apply(item(row));
+        try (Measurement measurement = measure("description")) {
+            assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
+            assert getComponent()
+                    .getDescriptionGenerator() != null : "No description generator set for the row";
+            return getComponent().getDescriptionGenerator().apply(item(row));
+        }
     }
 
     /**
@@ -127,14 +137,16 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @return Description String
      */
     public String description(int column, int row) {
-        assert (column > -1 && column < getComponent().getColumns()
-                .size()) : "Column out of bounds";
-        assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
-        Column<T, ?> col = getComponent().getColumns().get(column);
-        assert !col.isHidden() : THE_COLUMN_IS_HIDDEN;
-        assert col
-                .getDescriptionGenerator() != null : "No description generator set for the column";
-        return col.getDescriptionGenerator().apply(item(row));
+        try (Measurement measurement = measure("description")) {
+            assert (column > -1 && column < getComponent().getColumns()
+                    .size()) : "Column out of bounds";
+            assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
+            Column<T, ?> col = getComponent().getColumns().get(column);
+            assert !col.isHidden() : THE_COLUMN_IS_HIDDEN;
+            assert col
+                    .getDescriptionGenerator() != null : "No description generator set for the column";
+            return col.getDescriptionGenerator().apply(item(row));
+        }
     }
 
     /**
@@ -145,30 +157,353 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @return Style name String
      */
     public String styleName(int row) {
-        assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
-        return getComponent().getStyleGenerator().apply(item(row));
+        try (Measurement measurement = measure("styleName")) {
+            assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
+            return getComponent().getStyleGenerator().apply(item(row));
+        }
     }
 
     /**
-     * Return data item of the row.
+     * Return data item of the row. Rows are fetched from the DataCommunicator
+     * a page at a time and served from a window shared by the testers of the
+     * Grid until the DataProvider is refreshed or the sort order or filter is
+     * changed.
      *
      * @param row
      *            Row index
      * @return The item
      */
     public T item(int row) {
-        assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
-        return getComponent().getDataCommunicator().fetchItemsWithRange(row, 1)
-                .get(0);
+        try (Measurement measurement = measure("item")) {
+            assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
+            return GridRowCache.of(getComponent()).get(getComponent(), row);
+        }
     }
 
     /**
-     * Return the total amount of rows as reported by DataProvider.
+     * Return the total amount of rows as reported by DataProvider. The size is
+     * cached with the rows, see {@link #item(int)}.
      *
      * @return int value
      */
     public int size() {
-        return getComponent().getDataCommunicator().getDataProviderSize();
+        try (Measurement measurement = measure("size")) {
+            return GridRowCache.of(getComponent()).size(getComponent());
+        }
+    }
+
+    /**
+     * Return the values of the visible columns for a range of rows. The rows
+     * are fetched at once and the columns are resolved once, which is much
+     * faster than reading the same content with {@link #cell(int, int)}. For
+     * component columns the value is the same Component as returned by
+     * {@link #cell(int, int)}, generated once per row and attached to the
+     * Grid.
+     *
+     * @param firstRow
+     *            Index of the first row
+     * @param count
+     *            Number of rows
+     * @return List of rows, each a list of the values of the visible columns
+     */
+    public List<List<Object>> rows(int firstRow, int count) {
+        try (Measurement measurement = measure("rows")) {
+            return extract(firstRow, count, column -> value -> value, true);
+        }
+    }
+
+    /**
+     * Return the content of the visible columns for a range of rows as encoded
+     * by the renderers of the columns, e.g. numbers and dates formatted by
+     * NumberRenderer and DateRenderer. HtmlRenderer content is returned as
+     * HTML. Cells of component columns are null.
+     *
+     * @see #rows(int, int)
+     *
+     * @param firstRow
+     *            Index of the first row
+     * @param count
+     *            Number of rows
+     * @return List of rows, each a list of the rendered strings of the visible
+     *         columns
+     */
+    public List<List<String>> renderedRows(int firstRow, int count) {
+        try (Measurement measurement = measure("renderedRows")) {
+            return extract(firstRow, count, this::renderer, false);
+        }
+    }
+
+    // Cells of component columns are the cached components of the rows, or
+    // null if components is false, the value provider is not called for them
+    @SuppressWarnings("unchecked")
+    private <R> List<List<R>> extract(int firstRow, int count,
+            Function<Column<T, ?>, Function<Object, R>> cellMapper,
+            boolean components) {
+        assert (firstRow > -1 && count > -1
+                && firstRow + count <= size()) : ROW_OUT_OF_BOUNDS;
+        List<Column<T, ?>> columns = getComponent().getColumns().stream()
+                .filter(column -> !column.isHidden())
+                .collect(Collectors.toList());
+        List<Function<Object, R>> mappers = columns.stream().map(cellMapper)
+                .collect(Collectors.toList());
+        List<List<R>> result = new ArrayList<>(count);
+        GridRowCache<T> cache = GridRowCache.of(getComponent());
+        for (T item : cache.get(getComponent(), firstRow, count)) {
+            List<R> row = new ArrayList<>(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                Column<T, ?> column = columns.get(i);
+                if (column.getRenderer() instanceof ComponentRenderer) {
+                    row.add(components
+                            ? (R) cache.component(getComponent(), column, item)
+                            : null);
+                } else {
+                    Object value = column.getValueProvider().apply(item);
+                    row.add(mappers.get(i).apply(value));
+                }
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Function<Object, String> renderer(Column<T, ?> column) {
+        ValueProvider<Object, ?> presentationProvider = (ValueProvider<Object, ?>) Accessors
+                .field(Column.class, "presentationProvider").get(column);
+        Renderer<Object> renderer = (Renderer<Object>) column.getRenderer();
+        return value -> {
+            Object presentation = presentationProvider != null
+                    ? presentationProvider.apply(value)
+                    : value;
+            if (presentation instanceof Component) {
+                return null;
+            }
+            JsonValue encoded = renderer.encode(presentation);
+            if (encoded == null || encoded.getType() == JsonType.NULL) {
+                return null;
+            }
+            return encoded.getType() == JsonType.STRING ? encoded.asString()
+                    : encoded.toJson();
+        };
+    }
+
+    /**
+     * Return a sequential Stream of the items of the Grid in the current sort
+     * order and filter. Items are fetched from the DataCommunicator lazily a
+     * page at a time, so only one page is held in memory regardless of the
+     * size of the data.
+     *
+     * @see #stream(int)
+     *
+     * @return Stream of items
+     */
+    public Stream<T> stream() {
+        return stream(GridRowCache.PAGE_SIZE);
+    }
+
+    /**
+     * Return a sequential Stream of the items of the Grid in the current sort
+     * order and filter fetching the given amount of items per page.
+     *
+     * @see #iterator(int)
+     *
+     * @param pageSize
+     *            Number of items fetched per query, greater than zero
+     * @return Stream of items
+     */
+    public Stream<T> stream(int pageSize) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterator(pageSize), Spliterator.ORDERED), false);
+    }
+
+    /**
+     * Return an Iterator over the items of the Grid in the current sort order
+     * and filter. The next page is fetched from the DataCommunicator when the
+     * previous one has been consumed. The iteration ends at the first page
+     * which has less items than the page size.
+     *
+     * @param pageSize
+     *            Number of items fetched per query, greater than zero
+     * @return Iterator of items
+     */
+    public Iterator<T> iterator(int pageSize) {
+        assert (pageSize > 0) : "Page size must be greater than zero";
+        return new DataPageIterator<>(getComponent().getDataCommunicator(),
+                pageSize);
+    }
+
+    /**
+     * Return the index of the first row whose item matches the predicate. The
+     * items are scanned one page at a time in the current sort order and
+     * filter.
+     *
+     * @param predicate
+     *            The predicate
+     * @return Row index, -1 if no item matches
+     */
+    public int findRow(Predicate<T> predicate) {
+        try (Measurement measurement = measure("findRow")) {
+            assert (predicate != null) : "Predicate can't be null";
+            Iterator<T> iterator = iterator(GridRowCache.PAGE_SIZE);
+            for (int row = 0; iterator.hasNext(); row++) {
+                if (predicate.test(iterator.next())) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Return the index of the row of the item. Items are matched by the id
+     * given by the DataProvider. The row index is looked up from an index of
+     * the ids, which is built on first use and rebuilt only after the
+     * DataProvider is refreshed or the sort order or filter is changed.
+     *
+     * @see #rowOfId(Object)
+     *
+     * @param item
+     *            The item
+     * @return Row index, -1 if the item is not in the Grid
+     */
+    public int rowOf(T item) {
+        try (Measurement measurement = measure("rowOf")) {
+            assert (item != null) : "Item can't be null";
+            return rowOfId(getComponent().getDataProvider().getId(item));
+        }
+    }
+
+    /**
+     * Return the index of the row of the item with the given id, as given by
+     * {@link com.vaadin.data.provider.DataProvider#getId(Object)}.
+     *
+     * @see #rowOf(Object)
+     *
+     * @param id
+     *            The id of the item
+     * @return Row index, -1 if there is no item with the id
+     */
+    public int rowOfId(Object id) {
+        try (Measurement measurement = measure("rowOfId")) {
+            return GridRowCache.of(getComponent()).rowOfId(getComponent(), id);
+        }
+    }
+
+    /**
+     * Return the index of the first row where the column has the given value,
+     * as returned by the value provider of the column. The values of the
+     * column are indexed on first use like in {@link #rowOf(Object)}.
+     *
+     * @param column
+     *            Column index including hidden columns
+     * @param value
+     *            The value
+     * @return Row index, -1 if no row has the value
+     */
+    public int findRow(int column, Object value) {
+        try (Measurement measurement = measure("findRow")) {
+            assert (column > -1 && column < getComponent().getColumns()
+                    .size()) : "Column out of bounds";
+            return GridRowCache.of(getComponent()).rowOfValue(getComponent(),
+                    getComponent().getColumns().get(column), value);
+        }
+    }
+
+    /**
+     * Wrap the data provider of the Grid with a {@link CountingDataProvider},
+     * or a {@link CountingHierarchicalDataProvider} for TreeGrid, to record
+     * the queries made by the Grid and the tester. Returns the counter of the
+     * installed wrapper if the data provider is already wrapped.
+     * <p>
+     * <em>Warning</em>: This is not a read-only call. It replaces the data
+     * provider of the Grid under test with
+     * {@link Grid#setDataProvider(DataProvider)}, which resets the state of
+     * the DataCommunicator, e.g. the expanded items of a TreeGrid, so call it
+     * before interacting with the Grid. While the wrapper is installed,
+     * {@link Grid#getDataProvider()} returns the wrapper, thus application
+     * code which casts it e.g. to ListDataProvider fails and
+     * {@code TreeGrid.getTreeData()} throws. Use
+     * {@link #restoreDataProvider()} to install the original data provider
+     * again.
+     *
+     * @return The counter of the queries
+     */
+    public QueryCounter countQueries() {
+        try (Measurement measurement = measure("countQueries")) {
+            DataProvider<T, ?> dataProvider = getComponent().getDataProvider();
+            if (dataProvider instanceof CountingDataProvider) {
+                return ((CountingDataProvider<T, ?>) dataProvider).getCounter();
+            }
+            CountingDataProvider<T, ?> counting = CountingDataProvider
+                    .wrap(dataProvider);
+            getComponent().setDataProvider(counting);
+            return counting.getCounter();
+        }
+    }
+
+    /**
+     * Replace the wrapper installed by {@link #countQueries()} with the
+     * original data provider of the Grid. Like installing the wrapper, this
+     * resets the state of the DataCommunicator. Does nothing if the wrapper
+     * is not installed.
+     */
+    public void restoreDataProvider() {
+        try (Measurement measurement = measure("restoreDataProvider")) {
+            DataProvider<T, ?> dataProvider = getComponent().getDataProvider();
+            if (dataProvider instanceof CountingDataProvider) {
+                getComponent().setDataProvider(
+                        ((CountingDataProvider<T, ?>) dataProvider)
+                                .getDelegate());
+            }
+        }
+    }
+
+    /**
+     * Start a simulation of the browser scrolling the Grid with a cache of
+     * one viewport above and below the visible rows.
+     *
+     * @see #simulateScrolling(QueryCounter, int, int)
+     *
+     * @param counter
+     *            The counter returned by {@link #countQueries()}
+     * @param viewportRows
+     *            Number of visible rows
+     * @return The simulation
+     */
+    public GridScrollSimulation<T> simulateScrolling(QueryCounter counter,
+            int viewportRows) {
+        return simulateScrolling(counter, viewportRows, viewportRows);
+    }
+
+    /**
+     * Start a simulation of the browser scrolling the Grid. The backend
+     * queries are recorded with the counter, which must be the counter of the
+     * wrapper installed with {@link #countQueries()}. The wrapper is not
+     * installed by this method, as installing it replaces the data provider
+     * of the Grid. Asserts that the Grid is attached.
+     *
+     * @see GridScrollSimulation
+     *
+     * @param counter
+     *            The counter returned by {@link #countQueries()}
+     * @param viewportRows
+     *            Number of visible rows
+     * @param cacheRows
+     *            Number of rows cached above and below the visible rows
+     * @return The simulation
+     */
+    public GridScrollSimulation<T> simulateScrolling(QueryCounter counter,
+            int viewportRows, int cacheRows) {
+        try (Measurement measurement = measure("simulateScrolling")) {
+            assert (getComponent().isAttached()) : "Grid is not attached";
+            assert (counter != null) : "Counter can't be null";
+            DataProvider<T, ?> dataProvider = getComponent().getDataProvider();
+            assert (dataProvider instanceof CountingDataProvider
+                    && ((CountingDataProvider<T, ?>) dataProvider)
+                            .getCounter() == counter) : "Counter is not installed, use the one returned by countQueries()";
+            return new GridScrollSimulation<>(getComponent(), counter,
+                    viewportRows, cacheRows);
+        }
     }
 
     /**
@@ -182,27 +517,29 @@ public class GridTester<T> extends Tester<Grid<T>> {
      *            Row index
      */
     public void click(int column, int row) {
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        assert (column > -1 && column < getComponent().getColumns()
-                .size()) : "Column out of bounds";
-        assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
-        assert (!getComponent().getColumns().get(column)
-                .isHidden()) : THE_COLUMN_IS_HIDDEN;
-        T item = item(row);
-        MouseEventDetails details = new MouseEventDetails();
-        details.setButton(MouseButton.LEFT);
-        Grid.ItemClick<T> event = new Grid.ItemClick<>(getComponent(),
-                getComponent().getColumns().get(column), item, details, row);
-        getComponent().focus();
-        fireSimulatedEvent(event);
-        if (getComponent()
-                .getSelectionModel() instanceof SingleSelectionModel) {
-            if (getComponent().getSelectedItems().contains(item)) {
-                deselect(item);
-            } else {
-                select(item);
+        action("click", () -> {
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            assert (column > -1 && column < getComponent().getColumns()
+                    .size()) : "Column out of bounds";
+            assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
+            assert (!getComponent().getColumns().get(column)
+                    .isHidden()) : THE_COLUMN_IS_HIDDEN;
+            T item = item(row);
+            MouseEventDetails details = new MouseEventDetails();
+            details.setButton(MouseButton.LEFT);
+            Grid.ItemClick<T> event = new Grid.ItemClick<>(getComponent(),
+                    getComponent().getColumns().get(column), item, details, row);
+            getComponent().focus();
+            fireSimulatedEvent(event);
+            if (getComponent()
+                    .getSelectionModel() instanceof SingleSelectionModel) {
+                if (getComponent().getSelectionModel().isSelected(item)) {
+                    deselect(item);
+                } else {
+                    select(item);
+                }
             }
-        }
+        });
     }
 
     /**
@@ -213,12 +550,14 @@ public class GridTester<T> extends Tester<Grid<T>> {
      *            The row index
      */
     public void clickToSelect(int row) {
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        assert (getComponent()
-                .getSelectionModel() instanceof MultiSelectionModel) : GRID_IS_NOT_IN_MULTISELECT_MODE;
-        T item = item(row);
-        getComponent().focus();
-        clickToSelect(item);
+        action("clickToSelect", () -> {
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            assert (getComponent()
+                    .getSelectionModel() instanceof MultiSelectionModel) : GRID_IS_NOT_IN_MULTISELECT_MODE;
+            T item = item(row);
+            getComponent().focus();
+            clickToSelect(item);
+        });
     }
 
     /**
@@ -230,15 +569,100 @@ public class GridTester<T> extends Tester<Grid<T>> {
      */
     @SuppressWarnings("unchecked")
     public void clickToSelect(T item) {
+        action("clickToSelect", () -> {
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            assert (getComponent()
+                    .getSelectionModel() instanceof MultiSelectionModel) : GRID_IS_NOT_IN_MULTISELECT_MODE;
+            getComponent().focus();
+            // getSelectedItems() would copy the whole selection on each click
+            if (getComponent().getSelectionModel().isSelected(item)) {
+                deselect(Utils.setOfItems(item));
+            } else {
+                select(Utils.setOfItems(item));
+            }
+        });
+    }
+
+    /**
+     * Simulate selecting a range of rows in multiselect mode, e.g. with shift
+     * click. The rows are added to the current selection with a single
+     * selection event with userOriginated = true.
+     *
+     * @param firstRow
+     *            Index of the first row
+     * @param count
+     *            Number of rows
+     */
+    public void selectRange(int firstRow, int count) {
+        action("selectRange", () -> {
+            assertMultiSelectable();
+            assert (firstRow > -1 && count > -1
+                    && firstRow + count <= size()) : ROW_OUT_OF_BOUNDS;
+            getComponent().focus();
+            updateSelection(
+                    new LinkedHashSet<>(GridRowCache.of(getComponent())
+                            .get(getComponent(), firstRow, count)),
+                    new LinkedHashSet<>());
+        });
+    }
+
+    /**
+     * Simulate selecting the items matching the predicate in multiselect
+     * mode. The items are added to the current selection with a single
+     * selection event with userOriginated = true.
+     *
+     * @param predicate
+     *            The predicate
+     */
+    public void selectWhere(Predicate<T> predicate) {
+        action("selectWhere", () -> {
+            assertMultiSelectable();
+            assert (predicate != null) : "Predicate can't be null";
+            getComponent().focus();
+            updateSelection(
+                    stream().filter(predicate).collect(
+                            Collectors.toCollection(LinkedHashSet::new)),
+                    new LinkedHashSet<>());
+        });
+    }
+
+    /**
+     * Simulate clicking the select all checkbox in multiselect mode. All items
+     * of the data provider in the current filter are selected with a single
+     * selection event with userOriginated = true.
+     */
+    public void selectAll() {
+        action("selectAll", () -> {
+            assertMultiSelectable();
+            getComponent().focus();
+            updateSelection(
+                    stream().collect(
+                            Collectors.toCollection(LinkedHashSet::new)),
+                    new LinkedHashSet<>());
+        });
+    }
+
+    /**
+     * Simulate inverting the selection in multiselect mode, i.e. the selected
+     * items are deselected and the other items in the current filter are
+     * selected with a single selection event with userOriginated = true.
+     */
+    public void invertSelection() {
+        action("invertSelection", () -> {
+            assertMultiSelectable();
+            getComponent().focus();
+            Set<T> selected = getComponent().getSelectedItems();
+            updateSelection(
+                    stream().filter(item -> !selected.contains(item)).collect(
+                            Collectors.toCollection(LinkedHashSet::new)),
+                    new LinkedHashSet<>(selected));
+        });
+    }
+
+    private void assertMultiSelectable() {
         assert (isInteractable()) : INTERACTABLE_ERROR;
         assert (getComponent()
                 .getSelectionModel() instanceof MultiSelectionModel) : GRID_IS_NOT_IN_MULTISELECT_MODE;
-        getComponent().focus();
-        if (getComponent().getSelectedItems().contains(item)) {
-            deselect(Utils.setOfItems(item));
-        } else {
-            select(Utils.setOfItems(item));
-        }
     }
 
     /**
@@ -258,31 +682,28 @@ public class GridTester<T> extends Tester<Grid<T>> {
      *            Row index to start the editor
      */
     public void edit(int row) {
-        Grid<T> grid = getComponent();
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        assert (getComponent().getEditor().isEnabled()) : EDITOR_IS_DISABLED;
-        T editing = item(row);
-        if (grid.getEditor().isBuffered()) {
-            grid.getEditor().editRow(row);
-            grid.getEditor().getBinder().readBean(editing);
-        } else {
-            grid.getEditor().getBinder().setBean(editing);
-        }
-        fireEditorEvent(new EditorOpenEvent<T>(grid.getEditor(), editing));
-        setEdited(editing);
+        action("edit", () -> {
+            Grid<T> grid = getComponent();
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            assert (getComponent().getEditor().isEnabled()) : EDITOR_IS_DISABLED;
+            T editing = item(row);
+            if (grid.getEditor().isBuffered()) {
+                grid.getEditor().editRow(row);
+                grid.getEditor().getBinder().readBean(editing);
+            } else {
+                grid.getEditor().getBinder().setBean(editing);
+            }
+            fireEditorEvent(new EditorOpenEvent<T>(grid.getEditor(), editing));
+            setEdited(editing);
+        });
     }
 
     private void setEdited(T edited) {
         Grid<T> grid = getComponent();
         EditorImpl<T> editor = (EditorImpl<T>) grid.getEditor();
-        @SuppressWarnings("rawtypes")
-        Class<? extends EditorImpl> clazz = editor.getClass();
         try {
-            Field editedField = clazz.getDeclaredField("edited");
-            editedField.setAccessible(true);
-            editedField.set(editor, edited);
-        } catch (NoSuchFieldException | SecurityException
-                | IllegalArgumentException | IllegalAccessException e) {
+            Accessors.field(editor.getClass(), "edited").set(editor, edited);
+        } catch (IllegalStateException e) {
             e.printStackTrace();
         }
     }
@@ -291,14 +712,10 @@ public class GridTester<T> extends Tester<Grid<T>> {
     private T getEdited() {
         Grid<T> grid = getComponent();
         EditorImpl<T> editor = (EditorImpl<T>) grid.getEditor();
-        @SuppressWarnings("rawtypes")
-        Class<? extends EditorImpl> clazz = editor.getClass();
         try {
-            Field editedField = clazz.getDeclaredField("edited");
-            editedField.setAccessible(true);
-            return (T) editedField.get(editor);
-        } catch (NoSuchFieldException | SecurityException
-                | IllegalArgumentException | IllegalAccessException e) {
+            return (T) Accessors.field(editor.getClass(), "edited")
+                    .get(editor);
+        } catch (IllegalStateException e) {
             e.printStackTrace();
         }
         return null;
@@ -314,7 +731,9 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @return boolean value
      */
     public boolean editorOpen() {
-        return getComponent().getEditor().isOpen();
+        try (Measurement measurement = measure("editorOpen")) {
+            return getComponent().getEditor().isOpen();
+        }
     }
 
     /**
@@ -332,20 +751,22 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @see #cancel()
      */
     public void save() {
-        Grid<T> grid = getComponent();
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        assert (getComponent().getEditor().isEnabled()) : EDITOR_IS_DISABLED;
-        assert (editorOpen()) : EDITOR_IS_CLOSED;
-        T editing = getEdited();
-        if (grid.getEditor().isBuffered()) {
-            try {
-                grid.getEditor().getBinder().writeBean(editing);
-            } catch (ValidationException e) {
+        action("save", () -> {
+            Grid<T> grid = getComponent();
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            assert (getComponent().getEditor().isEnabled()) : EDITOR_IS_DISABLED;
+            assert (editorOpen()) : EDITOR_IS_CLOSED;
+            T editing = getEdited();
+            if (grid.getEditor().isBuffered()) {
+                try {
+                    grid.getEditor().getBinder().writeBean(editing);
+                } catch (ValidationException e) {
+                }
             }
-        }
-        fireEditorEvent(new EditorSaveEvent<T>(grid.getEditor(), editing));
-        grid.getDataProvider().refreshItem(editing);
-        setEdited(null);
+            fireEditorEvent(new EditorSaveEvent<T>(grid.getEditor(), editing));
+            grid.getDataProvider().refreshItem(editing);
+            setEdited(null);
+        });
     }
 
     /**
@@ -357,14 +778,16 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @see #save()
      */
     public void cancel() {
-        Grid<T> grid = getComponent();
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        assert (getComponent().getEditor().isEnabled()) : EDITOR_IS_DISABLED;
-        assert (editorOpen()) : EDITOR_IS_CLOSED;
-        assert (editorOpen()) : EDITOR_IS_CLOSED;
-        T editing = getEdited();
-        fireEditorEvent(new EditorCancelEvent<T>(grid.getEditor(), editing));
-        setEdited(null);
+        action("cancel", () -> {
+            Grid<T> grid = getComponent();
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            assert (getComponent().getEditor().isEnabled()) : EDITOR_IS_DISABLED;
+            assert (editorOpen()) : EDITOR_IS_CLOSED;
+            assert (editorOpen()) : EDITOR_IS_CLOSED;
+            T editing = getEdited();
+            fireEditorEvent(new EditorCancelEvent<T>(grid.getEditor(), editing));
+            setEdited(null);
+        });
     }
 
     /**
@@ -375,26 +798,24 @@ public class GridTester<T> extends Tester<Grid<T>> {
      *            int
      */
     public void toggleColumnVisibility(int columnIndex) {
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        Grid<T> grid = getComponent();
-        assert (columnIndex < grid.getColumns().size()
-                && columnIndex > -1) : "Column index out of bounds";
-        Column<T, ?> column = grid.getColumns().get(columnIndex);
-        assert column
-                .isHidable() : "Column hiding is not enabled for this column";
-        boolean hidden = column.isHidden();
-        Class<?> clazz = column.getClass();
-        try {
-            Method getStateMethod = clazz.getDeclaredMethod("getState");
-            getStateMethod.setAccessible(true);
-            ColumnState state = (ColumnState) getStateMethod.invoke(column);
-            state.hidden = !hidden;
-            grid.fireColumnVisibilityChangeEvent(column, !hidden, true);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
-            e.printStackTrace();
-        }
+        action("toggleColumnVisibility", () -> {
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            Grid<T> grid = getComponent();
+            assert (columnIndex < grid.getColumns().size()
+                    && columnIndex > -1) : "Column index out of bounds";
+            Column<T, ?> column = grid.getColumns().get(columnIndex);
+            assert column
+                    .isHidable() : "Column hiding is not enabled for this column";
+            boolean hidden = column.isHidden();
+            try {
+                ColumnState state = (ColumnState) Accessors
+                        .method(column.getClass(), "getState").invoke(column);
+                state.hidden = !hidden;
+                grid.fireColumnVisibilityChangeEvent(column, !hidden, true);
+            } catch (InvocationTargetException e) {
+                e.printStackTrace();
+            }
+        });
     }
 
     /**
@@ -405,19 +826,21 @@ public class GridTester<T> extends Tester<Grid<T>> {
      *            The caption as string
      */
     public void toggleColumnVisibility(String caption) {
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        Grid<T> grid = getComponent();
-        for (int i = 0; i < grid.getColumns().size(); i++) {
-            Column<T, ?> column = grid.getColumns().get(i);
-            String hidingCaption = column.getHidingToggleCaption() == null
-                    ? column.getCaption()
-                    : column.getHidingToggleCaption();
-            if (hidingCaption.equals(caption)) {
-                toggleColumnVisibility(i);
-                return;
+        action("toggleColumnVisibility", () -> {
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            Grid<T> grid = getComponent();
+            for (int i = 0; i < grid.getColumns().size(); i++) {
+                Column<T, ?> column = grid.getColumns().get(i);
+                String hidingCaption = column.getHidingToggleCaption() == null
+                        ? column.getCaption()
+                        : column.getHidingToggleCaption();
+                if (hidingCaption.equals(caption)) {
+                    toggleColumnVisibility(i);
+                    return;
+                }
             }
-        }
-        assert (false) : "No match for the given caption";
+            assert (false) : "No match for the given caption";
+        });
     }
 
     /**
@@ -428,48 +851,110 @@ public class GridTester<T> extends Tester<Grid<T>> {
      *            Index of the column including hidden columns.
      */
     public void toggleColumnSorting(int columnIndex) {
-        assert (isInteractable()) : INTERACTABLE_ERROR;
-        Grid<T> grid = getComponent();
-        assert (columnIndex < grid.getColumns().size()
-                && columnIndex > -1) : "Column index out of bounds";
-        assert (!grid.getColumns().get(columnIndex)
-                .isHidden()) : THE_COLUMN_IS_HIDDEN;
-        Column<T, ?> column = grid.getColumns().get(columnIndex);
-        assert column
-                .isSortable() : "Column sorting is not enabled for this column";
-        List<GridSortOrder<T>> newOrders = new ArrayList<>();
-        boolean changed = false;
-        for (int i = 0; i < grid.getSortOrder().size(); i++) {
-            GridSortOrder<T> order = grid.getSortOrder().get(i);
-            GridSortOrder<T> newOrder;
-            if (order.getSorted().equals(column)) {
-                SortDirection newDirection = order.getDirection().getOpposite();
-                newOrder = new GridSortOrder<>(order.getSorted(), newDirection);
-                changed = true;
-            } else {
-                newOrder = new GridSortOrder<>(order.getSorted(),
-                        order.getDirection());
+        action("toggleColumnSorting", () -> {
+            assert (isInteractable()) : INTERACTABLE_ERROR;
+            Grid<T> grid = getComponent();
+            assert (columnIndex < grid.getColumns().size()
+                    && columnIndex > -1) : "Column index out of bounds";
+            assert (!grid.getColumns().get(columnIndex)
+                    .isHidden()) : THE_COLUMN_IS_HIDDEN;
+            Column<T, ?> column = grid.getColumns().get(columnIndex);
+            assert column
+                    .isSortable() : "Column sorting is not enabled for this column";
+            List<GridSortOrder<T>> newOrders = new ArrayList<>();
+            boolean changed = false;
+            for (int i = 0; i < grid.getSortOrder().size(); i++) {
+                GridSortOrder<T> order = grid.getSortOrder().get(i);
+                GridSortOrder<T> newOrder;
+                if (order.getSorted().equals(column)) {
+                    SortDirection newDirection = order.getDirection().getOpposite();
+                    newOrder = new GridSortOrder<>(order.getSorted(), newDirection);
+                    changed = true;
+                } else {
+                    newOrder = new GridSortOrder<>(order.getSorted(),
+                            order.getDirection());
+                }
+                newOrders.add(newOrder);
             }
-            newOrders.add(newOrder);
-        }
-        if (!changed) {
-            newOrders.add(new GridSortOrder<>(column, SortDirection.ASCENDING));
+            if (!changed) {
+                newOrders.add(new GridSortOrder<>(column, SortDirection.ASCENDING));
+            }
+
+            try {
+                Accessors.method(Grid.class, "setSortOrder", List.class,
+                        Boolean.TYPE).invoke(getComponent(), newOrders, true);
+            } catch (InvocationTargetException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Return the index of the first row which is not in the order given by the
+     * current sort order of the Grid, including multi-column sort orders. The
+     * rows are streamed one page at a time and compared with the comparators
+     * of the sorted columns, which are either set with
+     * {@link Column#setComparator(com.vaadin.server.SerializableComparator)}
+     * or derived from the value providers.
+     *
+     * @see #assertSorted()
+     *
+     * @return Row index, -1 if the rows are sorted or the Grid has no sort
+     *         order
+     */
+    public int findSortViolation() {
+        try (Measurement measurement = measure("findSortViolation")) {
+            Comparator<T> comparator = sortComparator();
+            if (comparator == null) {
+                return -1;
+            }
+            Iterator<T> iterator = iterator(GridRowCache.PAGE_SIZE);
+            T previous = null;
+            for (int row = 0; iterator.hasNext(); row++) {
+                T item = iterator.next();
+                if (row > 0 && comparator.compare(previous, item) > 0) {
+                    return row;
+                }
+                previous = item;
+            }
+            return -1;
         }
+    }
 
-        Class<?> clazz = getComponent().getClass();
-        while (!clazz.equals(Grid.class)) {
-            clazz = clazz.getSuperclass();
+    /**
+     * Assert that the rows are in the order given by the current sort order of
+     * the Grid. Fails on the first row which is out of order.
+     *
+     * @see #findSortViolation()
+     *
+     * @throws AssertionError
+     *             describing the first pair of rows in wrong order
+     */
+    public void assertSorted() {
+        try (Measurement measurement = measure("assertSorted")) {
+            int row = findSortViolation();
+            if (row > 0) {
+                String orders = getComponent().getSortOrder().stream()
+                        .map(order -> order.getSorted().getCaption() + " "
+                                + order.getDirection())
+                        .collect(Collectors.joining(", "));
+                throw new AssertionError("Row " + row + " (" + item(row)
+                        + ") is not in sort order [" + orders
+                        + "] after row " + (row - 1) + " ("
+                        + item(row - 1) + ")");
+            }
         }
-        try {
-            Method setSortOrderMethod = clazz.getDeclaredMethod("setSortOrder",
-                    List.class, Boolean.TYPE);
-            setSortOrderMethod.setAccessible(true);
-            setSortOrderMethod.invoke(getComponent(), newOrders, true);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
-            e.printStackTrace();
+    }
+
+    private Comparator<T> sortComparator() {
+        Comparator<T> comparator = null;
+        for (GridSortOrder<T> order : getComponent().getSortOrder()) {
+            Comparator<T> columnComparator = order.getSorted()
+                    .getComparator(order.getDirection());
+            comparator = comparator == null ? columnComparator
+                    : comparator.thenComparing(columnComparator);
         }
+        return comparator;
     }
 
     /**
@@ -481,74 +966,65 @@ public class GridTester<T> extends Tester<Grid<T>> {
      * @return Details component
      */
     public Component details(int row) {
-        assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
+        try (Measurement measurement = measure("details")) {
+            assert (row > -1 && row < size()) : ROW_OUT_OF_BOUNDS;
 
-        Grid<T> grid = getComponent();
-        T item = item(row);
-        assert grid.isDetailsVisible(item) : "Details are not visible for row "
-                + row;
+            Grid<T> grid = getComponent();
+            T item = item(row);
+            assert grid.isDetailsVisible(item) : "Details are not visible for row "
+                    + row;
 
-        try {
-            Field detailsManagerField = Grid.class
-                    .getDeclaredField("detailsManager");
-            detailsManagerField.setAccessible(true);
-            @SuppressWarnings("unchecked")
-            Grid.DetailsManager<T> detailsManager = (Grid.DetailsManager<T>) detailsManagerField
-                    .get(grid);
-
-            assert detailsManager != null : "Details manager is not available";
-
-            Field generatorField = detailsManager.getClass()
-                    .getDeclaredField("generator");
-            generatorField.setAccessible(true);
-            Object generator = generatorField.get(detailsManager);
-            assert generator != null : "No details generator set";
-
-            JsonObject dummy = Json.createObject();
-            detailsManager.generateData(item, dummy);
-
-            Field componentsField = detailsManager.getClass()
-                    .getDeclaredField("components");
-            componentsField.setAccessible(true);
-            @SuppressWarnings("unchecked")
-            Map<T, Component> components = (Map<T, Component>) componentsField
-                    .get(detailsManager);
-
-            Component details = components != null ? components.get(item)
-                    : null;
-            if (details == null && components != null) {
-                for (Map.Entry<T, Component> entry : components.entrySet()) {
-                    if (Objects.equals(entry.getKey(), item)) {
-                        details = entry.getValue();
-                        break;
+            try {
+                @SuppressWarnings("unchecked")
+                Grid.DetailsManager<T> detailsManager = (Grid.DetailsManager<T>) Accessors
+                        .field(Grid.class, "detailsManager").get(grid);
+
+                assert detailsManager != null : "Details manager is not available";
+
+                Object generator = Accessors
+                        .field(detailsManager.getClass(), "generator")
+                        .get(detailsManager);
+                assert generator != null : "No details generator set";
+
+                JsonObject dummy = Json.createObject();
+                detailsManager.generateData(item, dummy);
+
+                @SuppressWarnings("unchecked")
+                Map<T, Component> components = (Map<T, Component>) Accessors
+                        .field(detailsManager.getClass(), "components")
+                        .get(detailsManager);
+
+                Component details = components != null ? components.get(item)
+                        : null;
+                if (details == null && components != null) {
+                    for (Map.Entry<T, Component> entry : components.entrySet()) {
+                        if (Objects.equals(entry.getKey(), item)) {
+                            details = entry.getValue();
+                            break;
+                        }
                     }
                 }
-            }
 
-            assert details != null : "Details component is not available for row "
-                    + row;
-            return details;
-        } catch (NoSuchFieldException | SecurityException
-                | IllegalArgumentException | IllegalAccessException e) {
-            throw new AssertionError(
-                    "Failed to access Grid details internals via reflection",
-                    e);
+                assert details != null : "Details component is not available for row "
+                        + row;
+                return details;
+            } catch (IllegalStateException e) {
+                throw new AssertionError(
+                        "Failed to access Grid details internals via reflection",
+                        e);
+            }
         }
     }
 
     // Internal utility method for firing simulated Editor events
     private void fireEditorEvent(EventObject event) {
         Grid<T> grid = getComponent();
-        @SuppressWarnings("unchecked")
-        Class<EditorImpl<T>> clazz = (Class<EditorImpl<T>>) grid.getEditor()
-                .getClass();
         try {
-            Field field = clazz.getDeclaredField("eventRouter");
-            field.setAccessible(true);
-            EventRouter eventRouter = (EventRouter) field.get(grid.getEditor());
+            EventRouter eventRouter = (EventRouter) Accessors
+                    .field(grid.getEditor().getClass(), "eventRouter")
+                    .get(grid.getEditor());
             eventRouter.fireEvent(event);
-        } catch (NoSuchFieldException | SecurityException
-                | IllegalArgumentException | IllegalAccessException e) {
+        } catch (IllegalStateException e) {
             e.printStackTrace();
         }
     }
@@ -557,38 +1033,23 @@ public class GridTester<T> extends Tester<Grid<T>> {
         assert (getComponent()
                 .getSelectionModel() instanceof MultiSelectionModel) : "Grid is not multiselect";
         assert (items != null) : "Items can't be null";
-        Set<T> copy = getComponent().getSelectedItems().stream()
-                .map(Objects::requireNonNull)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
-        copy.addAll(items);
-        Set<T> removed = new LinkedHashSet<>(getComponent().getSelectedItems());
-        updateSelection(copy, removed);
+        updateSelection(new LinkedHashSet<>(items), new LinkedHashSet<>());
     }
 
     protected void deselect(Set<T> items) {
         assert (getComponent()
                 .getSelectionModel() instanceof MultiSelectionModel) : "Grid is not multiselect";
         assert (items != null) : "Items can't be null";
-        Set<T> copy = getComponent().getSelectedItems().stream()
-                .map(Objects::requireNonNull)
-                .collect(Collectors.toCollection(LinkedHashSet::new));
-        copy.removeAll(items);
-        Set<T> removed = new LinkedHashSet<>(getComponent().getSelectedItems());
-        updateSelection(copy, removed);
+        updateSelection(new LinkedHashSet<>(), new LinkedHashSet<>(items));
     }
 
-    private void updateSelection(Set<T> copy, Set<T> removed) {
+    private void updateSelection(Set<T> added, Set<T> removed) {
         MultiSelectionModelImpl<T> model = (MultiSelectionModelImpl<T>) getComponent()
                 .getSelectionModel();
-        Class<?> clazz = model.getClass();
         try {
-            Method updateSelectionMethod = clazz.getDeclaredMethod(
-                    "updateSelection", Set.class, Set.class, Boolean.TYPE);
-            updateSelectionMethod.setAccessible(true);
-            updateSelectionMethod.invoke(model, copy, removed, true);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
+            Accessors.method(model.getClass(), "updateSelection", Set.class,
+                    Set.class, Boolean.TYPE).invoke(model, added, removed, true);
+        } catch (InvocationTargetException e) {
             e.printStackTrace();
         }
     }
@@ -600,15 +1061,10 @@ public class GridTester<T> extends Tester<Grid<T>> {
                 .key(item);
         SingleSelectionModelImpl<T> model = (SingleSelectionModelImpl<T>) getComponent()
                 .getSelectionModel();
-        Class<?> clazz = model.getClass();
         try {
-            Method setSelectedFromClientMethod = clazz
-                    .getDeclaredMethod("setSelectedFromClient", String.class);
-            setSelectedFromClientMethod.setAccessible(true);
-            setSelectedFromClientMethod.invoke(model, key);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
+            Accessors.method(model.getClass(), "setSelectedFromClient",
+                    String.class).invoke(model, key);
+        } catch (InvocationTargetException e) {
             e.printStackTrace();
         }
     }
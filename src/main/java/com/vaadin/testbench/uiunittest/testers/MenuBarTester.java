@@ -10,6 +10,7 @@ package com.vaadin.testbench.uiunittest.testers;
 
 import java.util.List;
 
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
 import com.vaadin.ui.MenuBar;
 import com.vaadin.ui.MenuBar.MenuItem;
 
@@ -28,8 +29,10 @@ public class MenuBarTester extends Tester<MenuBar> {
      * @return The first menu item matching the text, null if none found.
      */
     public MenuItem item(String text) {
-        List<MenuItem> items = getComponent().getItems();
-        return item(items, text);
+        try (Measurement measurement = measure("item")) {
+            List<MenuItem> items = getComponent().getItems();
+            return item(items, text);
+        }
     }
 
     private MenuItem item(List<MenuItem> items, String text) {
@@ -51,8 +54,10 @@ public class MenuBarTester extends Tester<MenuBar> {
      * @return The MenuItem matching the id, null if not found
      */
     public MenuItem item(int id) {
-        List<MenuItem> items = getComponent().getItems();
-        return item(items, id);
+        try (Measurement measurement = measure("item")) {
+            List<MenuItem> items = getComponent().getItems();
+            return item(items, id);
+        }
     }
 
     private MenuItem item(List<MenuItem> items, int id) {
@@ -72,14 +77,16 @@ public class MenuBarTester extends Tester<MenuBar> {
      * @param item
      */
     public void click(MenuItem item) {
-        assert (isInteractable()) : "Can't interact with disabled or invisible MenuBar";
-        assert (item
-                .getMenuBar() == getComponent()) : "Can't click foreign item";
-        assert (item.isEnabled()
-                && item.isVisible()) : "MenuItem is disabled or invisible";
-        assert (item
-                .getCommand() != null) : "The MenuItem has no Command associated with it";
-        focus();
-        item.getCommand().menuSelected(item);
+        action("click", () -> {
+            assert (isInteractable()) : "Can't interact with disabled or invisible MenuBar";
+            assert (item
+                    .getMenuBar() == getComponent()) : "Can't click foreign item";
+            assert (item.isEnabled()
+                    && item.isVisible()) : "MenuItem is disabled or invisible";
+            assert (item
+                    .getCommand() != null) : "The MenuItem has no Command associated with it";
+            focus();
+            item.getCommand().menuSelected(item);
+        });
     }
 }
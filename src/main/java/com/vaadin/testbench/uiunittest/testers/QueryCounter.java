@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.testers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Log of the queries made to a {@link CountingDataProvider}, with assertions
+ * on the number of queries.
+ *
+ * @see GridTester#countQueries()
+ * @see ComboBoxTester#countQueries()
+ */
+@SuppressWarnings("serial")
+public class QueryCounter implements Serializable {
+
+    /**
+     * Type of the data provider query.
+     */
+    public enum QueryType {
+        /** DataProvider#fetch */
+        FETCH,
+        /** DataProvider#size or HierarchicalDataProvider#getChildCount */
+        SIZE,
+        /** HierarchicalDataProvider#fetchChildren */
+        FETCH_CHILDREN,
+        /** HierarchicalDataProvider#hasChildren */
+        HAS_CHILDREN
+    }
+
+    /**
+     * A query made to the data provider.
+     */
+    public static final class QueryRecord implements Serializable {
+        private final QueryType type;
+        private final int offset;
+        private final int limit;
+
+        QueryRecord(QueryType type, int offset, int limit) {
+            this.type = type;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        /**
+         * Get the type of the query.
+         *
+         * @return QueryType
+         */
+        public QueryType getType() {
+            return type;
+        }
+
+        /**
+         * Get the offset of the query.
+         *
+         * @return int value, -1 for hasChildren queries
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Get the limit of the query.
+         *
+         * @return int value, -1 for hasChildren queries
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        @Override
+        public String toString() {
+            if (type == QueryType.HAS_CHILDREN) {
+                return type.toString();
+            }
+            return type + "[offset=" + offset + ", limit=" + limit + "]";
+        }
+    }
+
+    private final List<QueryRecord> queries = new ArrayList<>();
+
+    void record(QueryType type, int offset, int limit) {
+        queries.add(new QueryRecord(type, offset, limit));
+    }
+
+    /**
+     * Get the queries since creation or reset in the order they were made.
+     *
+     * @return Unmodifiable list of queries
+     */
+    public List<QueryRecord> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+
+    /**
+     * Get the number of queries since creation or reset.
+     *
+     * @return int value
+     */
+    public int getCount() {
+        return queries.size();
+    }
+
+    /**
+     * Get the number of queries of the given type since creation or reset.
+     *
+     * @param type
+     *            The query type
+     * @return int value
+     */
+    public int getCount(QueryType type) {
+        return (int) queries.stream().filter(query -> query.getType() == type)
+                .count();
+    }
+
+    /**
+     * Clear the recorded queries.
+     */
+    public void reset() {
+        queries.clear();
+    }
+
+    /**
+     * Assert that at most the given number of queries has been made since
+     * creation or reset.
+     *
+     * @param max
+     *            Maximum number of queries
+     * @throws AssertionError
+     *             listing the queries if there were more
+     */
+    public void assertAtMost(int max) {
+        if (getCount() > max) {
+            throw new AssertionError("Expected at most " + max
+                    + " queries, but there were " + getCount() + ": "
+                    + queries);
+        }
+    }
+
+    /**
+     * Assert that at most the given number of queries of the given type has
+     * been made since creation or reset.
+     *
+     * @param type
+     *            The query type
+     * @param max
+     *            Maximum number of queries
+     * @throws AssertionError
+     *             listing the queries if there were more
+     */
+    public void assertAtMost(QueryType type, int max) {
+        if (getCount(type) > max) {
+            throw new AssertionError("Expected at most " + max + " " + type
+                    + " queries, but there were " + getCount(type) + ": "
+                    + queries);
+        }
+    }
+
+    /**
+     * Reset the counter, run the interaction and assert that it made at most
+     * the given number of queries.
+     *
+     * @param max
+     *            Maximum number of queries
+     * @param interaction
+     *            The interaction, e.g. tester method calls
+     * @throws AssertionError
+     *             listing the queries if there were more
+     */
+    public void assertAtMost(int max, Runnable interaction) {
+        assert (interaction != null) : "Interaction can't be null";
+        reset();
+        interaction.run();
+        assertAtMost(max);
+    }
+}
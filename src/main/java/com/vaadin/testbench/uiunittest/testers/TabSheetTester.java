@@ -10,6 +10,7 @@ package com.vaadin.testbench.uiunittest.testers;
 
 import java.util.Iterator;
 
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.TabSheet;
 import com.vaadin.ui.TabSheet.Tab;
@@ -22,13 +23,15 @@ public class TabSheetTester extends Tester<TabSheet> {
     }
 
     public Tab tab(String caption) {
-        for (int i = 0; i < getComponent().getComponentCount(); i++) {
-            Tab tab = getComponent().getTab(i);
-            if (tab.getCaption().contains(caption)) {
-                return tab;
+        try (Measurement measurement = measure("tab")) {
+            for (int i = 0; i < getComponent().getComponentCount(); i++) {
+                Tab tab = getComponent().getTab(i);
+                if (tab.getCaption().contains(caption)) {
+                    return tab;
+                }
             }
+            return null;
         }
-        return null;
     }
 
     /**
@@ -39,18 +42,20 @@ public class TabSheetTester extends Tester<TabSheet> {
      *            The Tab
      */
     public void click(Tab tab) {
-        assert (isInteractable()) : "Can't interact with disabled or invisible TabSheet";
-        assert (tab.isEnabled() && tab
-                .isVisible()) : "Can't interact with disabled or invisible Tab";
-        int index = 0;
-        for (int i = 0; i < getComponent().getComponentCount(); i++) {
-            Tab t = getComponent().getTab(i);
-            if (t.equals(tab)) {
-                index = i;
-                break;
+        action("click", () -> {
+            assert (isInteractable()) : "Can't interact with disabled or invisible TabSheet";
+            assert (tab.isEnabled() && tab
+                    .isVisible()) : "Can't interact with disabled or invisible Tab";
+            int index = 0;
+            for (int i = 0; i < getComponent().getComponentCount(); i++) {
+                Tab t = getComponent().getTab(i);
+                if (t.equals(tab)) {
+                    index = i;
+                    break;
+                }
             }
-        }
-        click(index);
+            click(index);
+        });
     }
 
     /**
@@ -61,18 +66,20 @@ public class TabSheetTester extends Tester<TabSheet> {
      *            The Tab index
      */
     public void click(int index) {
-        Iterator<Component> iter = getComponent().iterator();
-        Component comp = null;
-        int i = 0;
-        while (iter.hasNext()) {
-            Component c = iter.next();
-            if (i == index) {
-                comp = c;
-                break;
+        action("click", () -> {
+            Iterator<Component> iter = getComponent().iterator();
+            Component comp = null;
+            int i = 0;
+            while (iter.hasNext()) {
+                Component c = iter.next();
+                if (i == index) {
+                    comp = c;
+                    break;
+                }
+                i++;
             }
-            i++;
-        }
-        getComponent().setSelectedTab(comp, true);
+            getComponent().setSelectedTab(comp, true);
+        });
     }
 
     /**
@@ -81,7 +88,9 @@ public class TabSheetTester extends Tester<TabSheet> {
      * @return A component.
      */
     public Component current() {
-        return getComponent().getSelectedTab();
+        try (Measurement measurement = measure("current")) {
+            return getComponent().getSelectedTab();
+        }
     }
 
     @Override
@@ -8,12 +8,12 @@
  */
 package com.vaadin.testbench.uiunittest.testers;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.EventObject;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -24,7 +24,10 @@ import com.vaadin.event.FieldEvents.BlurEvent;
 import com.vaadin.event.FieldEvents.FocusEvent;
 import com.vaadin.event.ShortcutAction;
 import com.vaadin.server.AbstractClientConnector;
+import com.vaadin.server.ClientConnector;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.testbench.uiunittest.metrics.Metrics;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
 import com.vaadin.ui.AbstractComponent;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.Component.Focusable;
@@ -33,6 +36,11 @@ import com.vaadin.ui.UI;
 @SuppressWarnings("java:S3011")
 public abstract class Tester<T extends AbstractComponent> {
 
+    private static final ThreadLocal<Consumer<String>> actionListener = new ThreadLocal<>();
+    private static final ThreadLocal<UnaryOperator<ClientConnector>> componentResolver = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> actionDepth = ThreadLocal
+            .withInitial(() -> new int[1]);
+
     private T component;
 
     protected Tester(T component) {
@@ -94,7 +102,9 @@ public abstract class Tester<T extends AbstractComponent> {
      * @return boolean value.
      */
     public boolean isInvalid() {
-        return getComponent().getComponentError() != null;
+        try (Measurement measurement = measure("isInvalid")) {
+            return getComponent().getComponentError() != null;
+        }
     }
 
     /**
@@ -103,14 +113,89 @@ public abstract class Tester<T extends AbstractComponent> {
      * @return String value.
      */
     public String errorMessage() {
-        if (getComponent().getComponentError() == null || getComponent()
-                .getComponentError().getFormattedHtmlMessage() == null) {
-            return null;
+        try (Measurement measurement = measure("errorMessage")) {
+            if (getComponent().getComponentError() == null || getComponent()
+                    .getComponentError().getFormattedHtmlMessage() == null) {
+                return null;
+            }
+            Document doc = Jsoup.parse(
+                    getComponent().getComponentError().getFormattedHtmlMessage());
+            doc.outputSettings().prettyPrint(false);
+            return isInvalid() ? doc.text() : null;
+        }
+    }
+
+    /**
+     * Start measuring a tester method for the metrics listener of the current
+     * test, use with try-with-resources.
+     *
+     * @param method
+     *            The name of the method
+     * @return Measurement
+     */
+    protected Measurement measure(String method) {
+        return Metrics.measure(getClass(), method);
+    }
+
+    /**
+     * Run an interaction method of the tester, i.e. a method which simulates
+     * user input. The method is measured like with {@link #measure(String)}
+     * and the action listener is notified after it has completed normally.
+     * Interactions run by other interactions and interactions which threw are
+     * not notified.
+     *
+     * @param method
+     *            The name of the method
+     * @param action
+     *            The body of the method
+     */
+    protected void action(String method, Runnable action) {
+        int[] depth = actionDepth.get();
+        depth[0]++;
+        try (Measurement measurement = measure(method)) {
+            action.run();
+        } finally {
+            depth[0]--;
+        }
+        Consumer<String> listener = actionListener.get();
+        if (listener != null && depth[0] == 0) {
+            listener.accept(getClass().getSimpleName() + "." + method);
+        }
+    }
+
+    /**
+     * Set the listener which is notified in the current thread after each
+     * interaction method called by the test, e.g. "GridTester.click". Methods
+     * which only read the component state, interactions called by other
+     * interactions and interactions which threw are not notified.
+     *
+     * @param listener
+     *            The listener, null to remove
+     */
+    public static void setActionListener(Consumer<String> listener) {
+        actionDepth.remove();
+        if (listener == null) {
+            actionListener.remove();
+        } else {
+            actionListener.set(listener);
+        }
+    }
+
+    /**
+     * Set the function which testers of the current thread use to resolve
+     * their component on each call, e.g. to the copy in the current session
+     * after it has been replaced by a simulated session round trip.
+     *
+     * @param resolver
+     *            The resolver, null to remove
+     */
+    public static void setComponentResolver(
+            UnaryOperator<ClientConnector> resolver) {
+        if (resolver == null) {
+            componentResolver.remove();
+        } else {
+            componentResolver.set(resolver);
         }
-        Document doc = Jsoup.parse(
-                getComponent().getComponentError().getFormattedHtmlMessage());
-        doc.outputSettings().prettyPrint(false);
-        return isInvalid() ? doc.text() : null;
     }
 
     /**
@@ -120,22 +205,14 @@ public abstract class Tester<T extends AbstractComponent> {
      *            The event to be fired
      */
     protected void fireSimulatedEvent(EventObject event) {
-        fireSimulatedEvent(component, event);
+        fireSimulatedEvent(getComponent(), event);
     }
 
     private void fireSimulatedEvent(Component component, EventObject event) {
-        Class<?> clazz = component.getClass();
-        while (!clazz.equals(AbstractClientConnector.class)) {
-            clazz = clazz.getSuperclass();
-        }
         try {
-            Method fireEventMethod = clazz.getDeclaredMethod("fireEvent",
-                    EventObject.class);
-            fireEventMethod.setAccessible(true);
-            fireEventMethod.invoke(component, event);
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
+            Accessors.method(AbstractClientConnector.class, "fireEvent",
+                    EventObject.class).invoke(component, event);
+        } catch (InvocationTargetException e) {
             e.printStackTrace();
         }
     }
@@ -151,32 +228,22 @@ public abstract class Tester<T extends AbstractComponent> {
      * client roundtrip.
      */
     public void focus() {
-        assert (isInteractable()) : "Cannot focus non-interactable component";
-        if (getComponent() instanceof Focusable) {
-            UI ui = UI.getCurrent();
-            Focusable focused = null;
-            Focusable focusable = (Focusable) getComponent();
-            Class<?> clazz = ui.getClass();
-            while (!clazz.equals(UI.class)) {
-                clazz = clazz.getSuperclass();
-            }
-            try {
-                Field field = clazz.getDeclaredField("pendingFocus");
-                field.setAccessible(true);
-                focused = (Focusable) field.get(ui);
-            } catch (NoSuchFieldException | SecurityException
-                    | IllegalArgumentException | IllegalAccessException e) {
-                e.printStackTrace();
-            }
-            if (focused != null && focused.equals(focusable)) {
-                return;
-            }
-            if (focused != null) {
-                fireSimulatedEvent(focused, new BlurEvent(focused));
+        action("focus", () -> {
+            assert (isInteractable()) : "Cannot focus non-interactable component";
+            if (getComponent() instanceof Focusable) {
+                UI ui = UI.getCurrent();
+                Focusable focusable = (Focusable) getComponent();
+                Focusable focused = getPendingFocus(ui);
+                if (focused != null && focused.equals(focusable)) {
+                    return;
+                }
+                if (focused != null) {
+                    fireSimulatedEvent(focused, new BlurEvent(focused));
+                }
+                ((Focusable) getComponent()).focus();
+                fireSimulatedEvent(new FocusEvent(focusable));
             }
-            ((Focusable) getComponent()).focus();
-            fireSimulatedEvent(new FocusEvent(focusable));
-        }
+        });
     }
 
     /**
@@ -186,24 +253,18 @@ public abstract class Tester<T extends AbstractComponent> {
      * @return boolean value.
      */
     public boolean isFocused() {
-        if (getComponent() instanceof Focusable) {
-            UI ui = UI.getCurrent();
-            Focusable focused = null;
-            Class<?> clazz = ui.getClass();
-            while (!clazz.equals(UI.class)) {
-                clazz = clazz.getSuperclass();
+        try (Measurement measurement = measure("isFocused")) {
+            if (getComponent() instanceof Focusable) {
+                UI ui = UI.getCurrent();
+                Focusable focused = getPendingFocus(ui);
+                return focused == getComponent();
             }
-            try {
-                Field field = clazz.getDeclaredField("pendingFocus");
-                field.setAccessible(true);
-                focused = (Focusable) field.get(ui);
-            } catch (NoSuchFieldException | SecurityException
-                    | IllegalArgumentException | IllegalAccessException e) {
-                e.printStackTrace();
-            }
-            return focused == getComponent();
+            return false;
         }
-        return false;
+    }
+
+    private static Focusable getPendingFocus(UI ui) {
+        return (Focusable) Accessors.field(UI.class, "pendingFocus").get(ui);
     }
 
     /**
@@ -214,24 +275,26 @@ public abstract class Tester<T extends AbstractComponent> {
      *            {@link com.vaadin.event.ShortcutAction.KeyCode}
      */
     public void shortcut(int key) {
-        assert (isInteractable()) : "Can't send shortcut to non-interactable component";
-        UI ui = UI.getCurrent();
-        if (ui == null) {
-            throw new IllegalStateException(
-                    "There is no current UI to send the shortcut event to");
-        }
-        ActionManager am = getActionManager();
-        Action[] actions = am.getActions(getComponent(), getComponent());
-        for (Action action : actions) {
-            if (action instanceof ShortcutAction) {
-                ShortcutAction shortcutAction = (ShortcutAction) action;
-                if (shortcutAction.getKeyCode() == key
-                        && shortcutAction.getModifiers().length == 0) {
-                    am.handleAction(shortcutAction, getComponent(),
-                            getComponent());
+        action("shortcut", () -> {
+            assert (isInteractable()) : "Can't send shortcut to non-interactable component";
+            UI ui = UI.getCurrent();
+            if (ui == null) {
+                throw new IllegalStateException(
+                        "There is no current UI to send the shortcut event to");
+            }
+            ActionManager am = getActionManager();
+            Action[] actions = am.getActions(getComponent(), getComponent());
+            for (Action action : actions) {
+                if (action instanceof ShortcutAction) {
+                    ShortcutAction shortcutAction = (ShortcutAction) action;
+                    if (shortcutAction.getKeyCode() == key
+                            && shortcutAction.getModifiers().length == 0) {
+                        am.handleAction(shortcutAction, getComponent(),
+                                getComponent());
+                    }
                 }
             }
-        }
+        });
     }
 
     /**
@@ -245,58 +308,56 @@ public abstract class Tester<T extends AbstractComponent> {
      *            {@link com.vaadin.event.ShortcutAction.ModifierKey}
      */
     public void shortcut(int key, int... modifierKeys) {
-        assert (isInteractable()) : "Can't send shortcut to non-interactable component";
-        UI ui = UI.getCurrent();
-        if (ui == null) {
-            throw new IllegalStateException(
-                    "There is no current UI to send the shortcut event to");
-        }
-        ActionManager am = getActionManager();
-        Action[] actions = am.getActions(getComponent(), getComponent());
-        for (Action action : actions) {
-            if (action instanceof ShortcutAction) {
-                ShortcutAction shortcutAction = (ShortcutAction) action;
-                if (shortcutAction.getKeyCode() == key) {
-                    int[] required = shortcutAction.getModifiers();
-                    Set<Integer> requiredSet = new HashSet<>();
-                    for (int mod : required) {
-                        requiredSet.add(mod);
-                    }
-                    Set<Integer> modifierKeysSet = new HashSet<>();
-                    for (int mod : modifierKeys) {
-                        modifierKeysSet.add(mod);
-                    }
-                    if (modifierKeysSet.containsAll(requiredSet)) {
-                        am.handleAction(shortcutAction, getComponent(),
-                                getComponent());
+        action("shortcut", () -> {
+            assert (isInteractable()) : "Can't send shortcut to non-interactable component";
+            UI ui = UI.getCurrent();
+            if (ui == null) {
+                throw new IllegalStateException(
+                        "There is no current UI to send the shortcut event to");
+            }
+            ActionManager am = getActionManager();
+            Action[] actions = am.getActions(getComponent(), getComponent());
+            for (Action action : actions) {
+                if (action instanceof ShortcutAction) {
+                    ShortcutAction shortcutAction = (ShortcutAction) action;
+                    if (shortcutAction.getKeyCode() == key) {
+                        int[] required = shortcutAction.getModifiers();
+                        Set<Integer> requiredSet = new HashSet<>();
+                        for (int mod : required) {
+                            requiredSet.add(mod);
+                        }
+                        Set<Integer> modifierKeysSet = new HashSet<>();
+                        for (int mod : modifierKeys) {
+                            modifierKeysSet.add(mod);
+                        }
+                        if (modifierKeysSet.containsAll(requiredSet)) {
+                            am.handleAction(shortcutAction, getComponent(),
+                                    getComponent());
+                        }
                     }
                 }
             }
-        }
+        });
     }
 
     private ActionManager getActionManager() {
         // Get action manager using reflection
-        ActionManager am = null;
-        Class<?> clazz = getComponent().getClass();
-        while (!clazz.equals(AbstractComponent.class)) {
-            clazz = clazz.getSuperclass();
-        }
         try {
-            Method getActionManagerMethod = clazz
-                    .getDeclaredMethod("getActionManager");
-            getActionManagerMethod.setAccessible(true);
-            am = (ActionManager) getActionManagerMethod.invoke(getComponent());
-        } catch (NoSuchMethodException | SecurityException
-                | IllegalAccessException | IllegalArgumentException
-                | InvocationTargetException e) {
+            return (ActionManager) Accessors
+                    .method(AbstractComponent.class, "getActionManager")
+                    .invoke(getComponent());
+        } catch (InvocationTargetException | IllegalStateException e) {
             throw new RuntimeException(
                     "Failed to get ActionManager from component", e);
         }
-        return am;
     }
 
+    @SuppressWarnings("unchecked")
     protected T getComponent() {
+        UnaryOperator<ClientConnector> resolver = componentResolver.get();
+        if (resolver != null) {
+            component = (T) resolver.apply(component);
+        }
         return component;
     }
 }
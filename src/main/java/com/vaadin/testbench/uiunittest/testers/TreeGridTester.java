@@ -8,9 +8,18 @@
  */
 package com.vaadin.testbench.uiunittest.testers;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.data.provider.HierarchicalDataCommunicator;
+import com.vaadin.data.provider.HierarchicalDataProvider;
+import com.vaadin.data.provider.HierarchicalQuery;
 import com.vaadin.event.CollapseEvent;
 import com.vaadin.event.ExpandEvent;
+import com.vaadin.testbench.uiunittest.metrics.Metrics.Measurement;
 import com.vaadin.ui.TreeGrid;
 
 @SuppressWarnings("java:S4274")
@@ -29,12 +38,124 @@ public class TreeGridTester<T> extends GridTester<T> {
      *            The item
      */
     public void clickToggle(T item) {
-        assert (isInteractable()) : "Can't interact with disabled or invisible TreeGrid";
-        if (getComponent().isExpanded(item)) {
-            assert (isCollapseAllowed(item)) : "TreeGrid Collapse not allowed";
-            collapse(item);
-        } else {
-            expand(item);
+        action("clickToggle", () -> {
+            assert (isInteractable()) : "Can't interact with disabled or invisible TreeGrid";
+            if (getComponent().isExpanded(item)) {
+                assert (isCollapseAllowed(item)) : "TreeGrid Collapse not allowed";
+                collapse(item);
+            } else {
+                expand(item);
+            }
+        });
+    }
+
+    /**
+     * Simulate expanding the given items and their descendants up to the
+     * given depth. All items are expanded in the DataCommunicator first and
+     * the TreeGrid is refreshed once, after which an expand event with
+     * isUserOriginated = true is fired for each item that was expanded.
+     *
+     * @param items
+     *            The items to expand
+     * @param depth
+     *            Maximum depth of the descendants to expand, 0 expands only
+     *            the given items
+     */
+    public void expandRecursively(Collection<T> items, int depth) {
+        action("expandRecursively", () -> {
+            assert (isInteractable()) : "Can't interact with disabled or invisible TreeGrid";
+            assert (items != null) : "Items can't be null";
+            List<T> expanded = new ArrayList<>();
+            expandRecursively(items.stream(), depth, expanded);
+            if (!expanded.isEmpty()) {
+                getComponent().getDataCommunicator().reset();
+                expanded.forEach(this::fireExpandEvent);
+            }
+        });
+    }
+
+    private void expandRecursively(Stream<T> items, int depth,
+            List<T> expanded) {
+        if (depth < 0) {
+            return;
+        }
+        HierarchicalDataCommunicator<T> communicator = getComponent()
+                .getDataCommunicator();
+        items.forEach(item -> {
+            if (communicator.hasChildren(item)) {
+                if (!communicator.isExpanded(item)) {
+                    communicator.expand(item, false);
+                    expanded.add(item);
+                }
+                expandRecursively(fetchChildren(item), depth - 1, expanded);
+            }
+        });
+    }
+
+    /**
+     * Simulate collapsing all expanded items whose collapsing is allowed.
+     * Only the expanded branches of the hierarchy are traversed. The TreeGrid
+     * is refreshed once, after which a collapse event with isUserOriginated =
+     * true is fired for each item that was collapsed.
+     */
+    public void collapseAll() {
+        action("collapseAll", () -> {
+            assert (isInteractable()) : "Can't interact with disabled or invisible TreeGrid";
+            List<T> expanded = new ArrayList<>();
+            collectExpanded(null, expanded);
+            HierarchicalDataCommunicator<T> communicator = getComponent()
+                    .getDataCommunicator();
+            List<T> collapsed = new ArrayList<>();
+            for (T item : expanded) {
+                if (isCollapseAllowed(item)) {
+                    communicator.collapse(item, false);
+                    collapsed.add(item);
+                }
+            }
+            if (!collapsed.isEmpty()) {
+                communicator.reset();
+                collapsed.forEach(this::fireCollapseEvent);
+            }
+        });
+    }
+
+    private void collectExpanded(T parent, List<T> expanded) {
+        HierarchicalDataCommunicator<T> communicator = getComponent()
+                .getDataCommunicator();
+        fetchChildren(parent).filter(communicator::isExpanded)
+                .forEach(item -> {
+                    expanded.add(item);
+                    collectExpanded(item, expanded);
+                });
+    }
+
+    // Children as shown by the TreeGrid, i.e. with the filter and the sort
+    // order of the DataCommunicator, items hidden by the filter can't be
+    // expanded or collapsed by the user
+    @SuppressWarnings("unchecked")
+    private Stream<T> fetchChildren(T parent) {
+        HierarchicalDataCommunicator<T> communicator = getComponent()
+                .getDataCommunicator();
+        Object filter = Accessors.field(DataCommunicator.class, "filter")
+                .get(communicator);
+        HierarchicalDataProvider<T, Object> dataProvider = (HierarchicalDataProvider<T, Object>) getComponent()
+                .getDataProvider();
+        return dataProvider.fetchChildren(new HierarchicalQuery<>(0,
+                Integer.MAX_VALUE, communicator.getBackEndSorting(),
+                communicator.getInMemorySorting(), filter, parent));
+    }
+
+    /**
+     * Return the visible rows of the TreeGrid as a flat list in the order
+     * they are shown, i.e. the items of the roots and the descendants of
+     * expanded items. The rows are fetched from the DataCommunicator at once.
+     *
+     * @return List of items
+     */
+    public List<T> visibleItems() {
+        try (Measurement measurement = measure("visibleItems")) {
+            return GridRowCache.of(getComponent()).get(getComponent(), 0,
+                    size());
         }
     }
 
@@ -8,6 +8,7 @@
  */
 package com.vaadin.testbench.uiunittest.tests;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -53,4 +54,25 @@ public class CheckBoxGroupTest extends UIUnitTest {
         assertFalse(message.contains("Three"));
         assertTrue(message.contains("One"));
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void bulkSelection() {
+        CheckBoxGroup<String> group = $(CheckBoxGroup.class).first();
+        test(group).selectAll();
+        assertEquals(1, $(Notification.class).size());
+        assertEquals("One,Two,Three",
+                $(Notification.class).last().getCaption());
+
+        test(group).invertSelection();
+        assertTrue(group.getValue().isEmpty());
+
+        test(group).selectWhere(item -> item.startsWith("T"));
+        assertEquals("Two,Three", $(Notification.class).last().getCaption());
+
+        test(group).selectRange(0, 2);
+        assertEquals("Two,Three,One",
+                $(Notification.class).last().getCaption());
+        assertEquals(4, $(Notification.class).size());
+    }
 }
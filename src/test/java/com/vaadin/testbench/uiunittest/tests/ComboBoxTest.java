@@ -10,6 +10,9 @@ package com.vaadin.testbench.uiunittest.tests;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -17,6 +20,8 @@ import org.junit.Test;
 import com.vaadin.server.ServiceException;
 import com.vaadin.testbench.uiunittest.TestUI;
 import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter.QueryType;
 import com.vaadin.testbench.uiunittest.views.ComboBoxTestView;
 import com.vaadin.ui.ComboBox;
 import com.vaadin.ui.Label;
@@ -60,4 +65,23 @@ public class ComboBoxTest extends UIUnitTest {
         assertEquals("New", $(Label.class).id("new").getValue());
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void countQueries() {
+        ComboBox<String> comboBox = $(ComboBox.class).first();
+        List<String> items = Arrays.asList("One", "Two", "Three");
+        comboBox.setDataProvider(
+                (filter, offset, limit) -> items.stream()
+                        .filter(item -> item.contains(filter)).skip(offset)
+                        .limit(limit),
+                filter -> (int) items.stream()
+                        .filter(item -> item.contains(filter)).count());
+        QueryCounter counter = test(comboBox).countQueries();
+
+        counter.assertAtMost(1, () -> test(comboBox).setInput("Th"));
+        assertEquals("Three", $(Notification.class).last().getCaption());
+        assertEquals(QueryType.FETCH, counter.getQueries().get(0).getType());
+        assertEquals(2, counter.getQueries().get(0).getLimit());
+    }
+
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.ServiceException;
+import com.vaadin.testbench.uiunittest.TestUI;
+import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.views.GridTestView;
+import com.vaadin.testbench.uiunittest.views.GridTestView.Bean;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.HasComponents;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.VerticalLayout;
+
+public class ComponentIndexTest extends UIUnitTest {
+
+    private TestUI ui;
+
+    @Before
+    public void setup() throws ServiceException {
+        ui = new TestUI();
+        mockVaadin(ui);
+        enableComponentIndex();
+    }
+
+    @After
+    public void cleanup() {
+        tearDown();
+    }
+
+    @Test
+    public void indexFollowsNavigation() {
+        for (String name : ui.getViews().keySet()) {
+            ui.navigate(name);
+            assertEquals(traverse(Component.class), $(Component.class));
+            assertEquals(traverse(Button.class), $(Button.class));
+            assertEquals(traverse(Label.class), $(Label.class));
+        }
+    }
+
+    @Test
+    public void idQueries() {
+        assertEquals("Menu", $(Label.class).id("menu").getValue());
+
+        VerticalLayout content = (VerticalLayout) ui.getContent();
+        Label late = new Label("Late");
+        content.addComponent(late);
+        late.setId("late");
+        assertSame(late, $(Label.class).id("late"));
+
+        content.removeComponent(late);
+        assertFalse($(Label.class).contains(late));
+        assertNull($(Label.class).id("late"));
+    }
+
+    @Test
+    public void duplicateIds() {
+        VerticalLayout content = (VerticalLayout) ui.getContent();
+        Label first = new Label("First");
+        first.setId("duplicate");
+        content.addComponent(first);
+        assertSame(first, $(Label.class).id("duplicate"));
+
+        Label second = new Label("Second");
+        second.setId("duplicate");
+        content.addComponent(second);
+        boolean thrown = false;
+        try {
+            $(Label.class).id("duplicate");
+        } catch (AssertionError e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+    }
+
+    @Test
+    public void staleIdIsRechecked() {
+        VerticalLayout content = (VerticalLayout) ui.getContent();
+        Label first = new Label("First");
+        first.setId("first");
+        Label second = new Label("Second");
+        content.addComponents(first, second);
+        assertSame(first, $(Label.class).id("first"));
+
+        // The entry of the first label is stale, the lookup falls back to
+        // the current ids
+        first.setId("renamed");
+        second.setId("first");
+        assertSame(second, $(Label.class).id("first"));
+        assertSame(first, $(Label.class).id("renamed"));
+    }
+
+    @Test
+    public void styleNameAndCaptionQueries() {
+        VerticalLayout content = (VerticalLayout) ui.getContent();
+        Label styled = new Label("Styled");
+        styled.setStyleName("highlight");
+        styled.setCaption("Caption");
+        content.addComponent(styled);
+        assertSame(styled, $(Label.class).styleName("highlight").single());
+        assertSame(styled, $(Label.class).caption("Caption").single());
+        assertSame(styled, $(Label.class).styleName("highlight")
+                .caption("Caption").first());
+        assertTrue($(Label.class).styleName("highlight").caption("Other")
+                .isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void gridComponentColumn() {
+        navigate(GridTestView.NAME, GridTestView.class);
+        Grid<Bean> grid = $(Grid.class).single();
+        test(grid).cell(1, 0);
+        assertEquals(traverse(TextField.class), $(TextField.class));
+        assertEquals("Value 0", $(TextField.class).first().getValue());
+    }
+
+    private <T extends ClientConnector> List<T> traverse(Class<T> clazz) {
+        List<Component> roots = new ArrayList<>();
+        roots.add(ui.getContent());
+        roots.addAll(ui.getWindows());
+        List<T> expected = new ArrayList<>();
+        for (Component root : roots) {
+            if (clazz.isInstance(root)) {
+                expected.add(clazz.cast(root));
+            }
+            expected.addAll($((HasComponents) root, clazz));
+        }
+        return expected;
+    }
+}
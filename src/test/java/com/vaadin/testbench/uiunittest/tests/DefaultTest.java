@@ -12,6 +12,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
 
 import org.junit.After;
 import org.junit.Before;
@@ -22,8 +26,10 @@ import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.testbench.uiunittest.AbstractUIUnitTest.QueryResult;
 import com.vaadin.testbench.uiunittest.DefaultView;
 import com.vaadin.testbench.uiunittest.SerializationDebugUtil;
+import com.vaadin.testbench.uiunittest.SerializationProfile;
 import com.vaadin.testbench.uiunittest.TestUI;
 import com.vaadin.testbench.uiunittest.UIUnitTest;
 import com.vaadin.testbench.uiunittest.views.TreeGridTestView;
@@ -31,6 +37,7 @@ import com.vaadin.ui.Button;
 import com.vaadin.ui.Label;
 import com.vaadin.ui.TreeGrid;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
 
 public class DefaultTest extends UIUnitTest {
 
@@ -91,6 +98,40 @@ public class DefaultTest extends UIUnitTest {
         }
     }
 
+    @Test
+    public void queryIsDeferred() {
+        QueryResult<Label> labels = $(Label.class);
+        Label added = new Label("Added");
+        ((VerticalLayout) ui.getContent()).addComponent(added);
+        assertSame(added, labels.last());
+        assertEquals("Menu", labels.first().getValue());
+        assertEquals(2, labels.size());
+
+        // The query is not run again after the first call
+        ((VerticalLayout) ui.getContent()).addComponent(new Label("Later"));
+        assertSame(added, labels.last());
+        assertEquals(2, labels.size());
+
+        int err = 0;
+        try {
+            labels.single();
+        } catch (AssertionError e) {
+            err++;
+        }
+        assertEquals(1, err);
+    }
+
+    @Test
+    public void queryIsCapturedByFirstCall() {
+        QueryResult<Label> labels = $(Label.class);
+        Label first = labels.first();
+        ((VerticalLayout) ui.getContent()).addComponent(new Label("Added"),
+                0);
+        assertSame(first, labels.get(0));
+        assertSame(first, labels.first());
+        assertEquals(1, labels.size());
+    }
+
     @Test
     public void isSerializable()  {
         SerializationDebugUtil.assertSerializable(ui.getSession());
@@ -99,4 +140,108 @@ public class DefaultTest extends UIUnitTest {
         SerializationDebugUtil.assertSerializable(view);
         assertNotNull(UI.getCurrent());
     }
+
+    @Test
+    public void serializedSize() {
+        DefaultView view = navigate("", DefaultView.class);
+        long sessionSize = SerializationDebugUtil
+                .assertSerializableSize(ui.getSession());
+        long viewSize = SerializationDebugUtil.assertSerializableSize(view);
+        assertTrue(viewSize > 0);
+        assertTrue(sessionSize >= viewSize);
+        assertEquals(0, SerializationDebugUtil.assertSerializableSize(null));
+
+        int err = 0;
+        try {
+            SerializationDebugUtil.assertSerializableSize(new Object());
+        } catch (AssertionError e) {
+            err++;
+            assertTrue(e.getMessage()
+                    .contains("---- Serialization Debug Report ----"));
+        }
+        assertEquals(1, err);
+    }
+
+    @Test
+    public void deepGraphReport() {
+        Node head = new Node();
+        Node node = head;
+        for (int i = 0; i < 100000; i++) {
+            node.next = new Node();
+            node = node.next;
+        }
+        node.payload = new Object();
+        assertDeepGraphReport(head);
+    }
+
+    @Test
+    public void deepGraphReportLinkNotFirst() {
+        // The link is not the first field inspected further, in parallel mode
+        // such fields may be shared with other workers
+        LabeledNode head = new LabeledNode();
+        LabeledNode node = head;
+        for (int i = 0; i < 100000; i++) {
+            node.next = new LabeledNode();
+            node = node.next;
+        }
+        node.payload = new Object();
+        assertDeepGraphReport(head);
+    }
+
+    private void assertDeepGraphReport(Object head) {
+        for (boolean parallel : new boolean[] { false, true }) {
+            StringBuilder report = new StringBuilder();
+            int err = 0;
+            try {
+                SerializationDebugUtil.assertSerializable(head, report,
+                        parallel);
+            } catch (AssertionError e) {
+                err++;
+            }
+            assertEquals(1, err);
+            assertTrue(report.toString().contains(
+                    "- root.next.next.next.next.next.next.next.next.next.next"
+                            + ".next.next.next.next.next...(99970 more)"
+                            + ".next.next.next.next.next.next.next.next.next"
+                            + ".next.next.next.next.next.next.payload"
+                            + " (java.lang.Object)"));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    public static class Node implements Serializable {
+        private Node next;
+        private Object payload;
+    }
+
+    @SuppressWarnings("serial")
+    public static class LabeledNode implements Serializable {
+        private String label = "Node";
+        private LabeledNode next;
+        private Object payload;
+    }
+
+    @Test
+    public void serializationProfile() {
+        DefaultView view = navigate("", DefaultView.class);
+        SerializationProfile profile = SerializationDebugUtil
+                .profile(ui.getSession());
+        assertTrue(profile.getTotalBytes() >= SerializationDebugUtil
+                .assertSerializableSize(ui.getSession()));
+        assertTrue(profile.getBytes(view) > 0);
+        assertTrue(profile.getBytes(ui) >= profile.getBytes(view));
+        assertTrue(profile.getBytes(ui) <= profile.getTotalBytes());
+        assertSame(ui, profile.topComponents(1).get(0).getKey());
+        assertEquals(3, profile.topClasses(3).size());
+        assertTrue(profile.report(5).contains("Largest component subtrees"));
+
+        int err = 0;
+        try {
+            profile.assertAtMost(view, 1);
+        } catch (AssertionError e) {
+            err++;
+            assertTrue(e.getMessage().contains("Total bytes: "));
+        }
+        assertEquals(1, err);
+    }
 }
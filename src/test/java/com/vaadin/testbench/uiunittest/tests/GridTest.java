@@ -11,20 +11,34 @@ package com.vaadin.testbench.uiunittest.tests;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.data.provider.ListDataProvider;
 import com.vaadin.server.ServiceException;
 import com.vaadin.testbench.uiunittest.SerializationDebugUtil;
 import com.vaadin.testbench.uiunittest.TestUI;
 import com.vaadin.testbench.uiunittest.UIUnitTest;
 import com.vaadin.testbench.uiunittest.Utils;
+import com.vaadin.testbench.uiunittest.testers.GridScrollSimulation;
+import com.vaadin.testbench.uiunittest.testers.GridScrollSimulation.ScrollStep;
+import com.vaadin.testbench.uiunittest.testers.GridTester;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter.QueryType;
 import com.vaadin.testbench.uiunittest.views.GridTestView;
 import com.vaadin.testbench.uiunittest.views.GridTestView.Bean;
 import com.vaadin.ui.Button;
@@ -35,6 +49,7 @@ import com.vaadin.ui.Label;
 import com.vaadin.ui.Notification;
 import com.vaadin.ui.RadioButtonGroup;
 import com.vaadin.ui.TextField;
+import com.vaadin.ui.VerticalLayout;
 
 public class GridTest extends UIUnitTest {
 
@@ -304,4 +319,334 @@ public class GridTest extends UIUnitTest {
         assertEquals(1, err);
     }
 
+    @Test
+    public void rowsAreServedFromWindow() {
+        AtomicInteger fetches = new AtomicInteger();
+        AtomicInteger counts = new AtomicInteger();
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        grid.setDataProvider(DataProvider.fromCallbacks(query -> {
+            fetches.incrementAndGet();
+            return view.getData().stream().skip(query.getOffset())
+                    .limit(query.getLimit());
+        }, query -> {
+            counts.incrementAndGet();
+            return view.getData().size();
+        }));
+
+        for (int i = 0; i < test(grid).size(); i++) {
+            assertEquals(i, test(grid).item(i).getId());
+            assertEquals(i + ":Value " + i, test(grid).description(i));
+        }
+        assertEquals(1, fetches.get());
+        assertEquals(1, counts.get());
+
+        grid.getDataProvider().refreshAll();
+        assertEquals(9, test(grid).item(9).getId());
+        assertEquals(2, fetches.get());
+        assertEquals(2, counts.get());
+
+        test(grid).toggleColumnSorting(0);
+        assertEquals(0, test(grid).item(0).getId());
+        assertEquals(3, fetches.get());
+        assertEquals(3, counts.get());
+    }
+
+    @Test
+    public void rowsInBulk() {
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        List<List<Object>> rows = test(grid).rows(2, 3);
+        assertEquals(3, rows.size());
+        assertEquals(2, rows.get(0).get(0));
+        assertEquals(4, rows.get(2).get(0));
+        assertTrue(rows.get(0).get(1) instanceof HorizontalLayout);
+        // Component cells are the components of the rows attached to the Grid
+        assertSame(test(grid).cell(1, 2), rows.get(0).get(1));
+        assertSame(rows.get(1).get(1), test(grid).rows(3, 1).get(0).get(1));
+        assertSame(grid, ((HorizontalLayout) rows.get(0).get(1)).getParent());
+        assertEquals(Arrays.asList("2", null),
+                test(grid).renderedRows(2, 1).get(0));
+
+        test(grid).toggleColumnVisibility("VALUE");
+        List<List<String>> rendered = test(grid).renderedRows(0,
+                test(grid).size());
+        assertEquals(10, rendered.size());
+        for (int i = 0; i < rendered.size(); i++) {
+            assertEquals(Collections.singletonList(String.valueOf(i)),
+                    rendered.get(i));
+        }
+    }
+
+    @Test
+    public void streamPages() {
+        AtomicInteger fetches = new AtomicInteger();
+        AtomicInteger maxLimit = new AtomicInteger();
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        grid.setDataProvider(DataProvider.fromCallbacks(query -> {
+            fetches.incrementAndGet();
+            maxLimit.accumulateAndGet(query.getLimit(), Math::max);
+            return IntStream
+                    .range(query.getOffset(),
+                            Math.min(1000, query.getOffset() + query.getLimit()))
+                    .mapToObj(i -> new Bean(i, "Value " + i));
+        }, query -> 1000));
+
+        assertEquals(499500,
+                test(grid).stream(100).mapToInt(Bean::getId).sum());
+        // The last page is empty
+        assertEquals(11, fetches.get());
+        assertEquals(100, maxLimit.get());
+    }
+
+    @Test
+    public void streamSortedAndFiltered() {
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        test(grid).toggleColumnSorting(0);
+        test(grid).toggleColumnSorting(0);
+        @SuppressWarnings("unchecked")
+        ListDataProvider<Bean> dataProvider = (ListDataProvider<Bean>) grid
+                .getDataProvider();
+        dataProvider.setFilter(bean -> bean.getId() % 2 == 0);
+
+        assertEquals(Arrays.asList(8, 6, 4, 2, 0), test(grid).stream(2)
+                .map(Bean::getId).collect(Collectors.toList()));
+        Iterator<Bean> iterator = test(grid).iterator(5);
+        assertEquals(8, iterator.next().getId());
+    }
+
+    @Test
+    public void findRows() {
+        AtomicInteger fetches = new AtomicInteger();
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        grid.setDataProvider(DataProvider.fromCallbacks(query -> {
+            fetches.incrementAndGet();
+            return view.getData().stream().skip(query.getOffset())
+                    .limit(query.getLimit());
+        }, query -> view.getData().size()));
+
+        Bean bean = view.getData().get(3);
+        assertEquals(3, test(grid).rowOf(bean));
+        assertEquals(7, test(grid).rowOf(view.getData().get(7)));
+        assertEquals(1, fetches.get());
+        assertEquals(-1, test(grid).rowOf(new Bean(3, "Value 3")));
+
+        assertEquals(5, test(grid).findRow(0, 5));
+        assertEquals(-1, test(grid).findRow(0, 10));
+        assertEquals(6, test(grid)
+                .findRow(item -> item.getValue().equals("Value 6")));
+        assertEquals(-1, test(grid).findRow(item -> item.getId() > 9));
+
+        grid.getDataProvider().refreshAll();
+        int before = fetches.get();
+        assertEquals(3, test(grid).rowOf(bean));
+        assertEquals(before + 1, fetches.get());
+    }
+
+    @Test
+    public void verifySortOrder() {
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        assertEquals(-1, test(grid).findSortViolation());
+        test(grid).toggleColumnSorting(0);
+        test(grid).toggleColumnSorting(0);
+        test(grid).assertSorted();
+
+        // Data provider which ignores the sort order
+        grid.setDataProvider(DataProvider.fromCallbacks(
+                query -> view.getData().stream().skip(query.getOffset())
+                        .limit(query.getLimit()),
+                query -> view.getData().size()));
+        assertEquals(1, test(grid).findSortViolation());
+        int err = 0;
+        try {
+            test(grid).assertSorted();
+        } catch (AssertionError e) {
+            err++;
+            assertTrue(e.getMessage().startsWith("Row 1 "));
+            assertTrue(e.getMessage().contains("[ID DESCENDING]"));
+        }
+        assertEquals(1, err);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void bulkSelection() {
+        AtomicInteger events = new AtomicInteger();
+        Grid<Bean> grid = $(Grid.class).single();
+        test($(RadioButtonGroup.class).caption("Mode").first())
+                .clickItem(SelectionMode.MULTI);
+        grid.addSelectionListener(e -> {
+            if (e.isUserOriginated()) {
+                events.incrementAndGet();
+            }
+        });
+
+        test(grid).selectRange(2, 3);
+        assertEquals(1, events.get());
+        assertEquals(selection(2, 3, 4), grid.getSelectedItems());
+
+        test(grid).selectWhere(bean -> bean.getId() % 2 == 0);
+        assertEquals(2, events.get());
+        assertEquals(selection(0, 2, 3, 4, 6, 8), grid.getSelectedItems());
+
+        test(grid).invertSelection();
+        assertEquals(3, events.get());
+        assertEquals(selection(1, 5, 7, 9), grid.getSelectedItems());
+
+        test(grid).selectAll();
+        assertEquals(4, events.get());
+        assertEquals(10, grid.getSelectedItems().size());
+    }
+
+    private Set<Bean> selection(int... rows) {
+        return IntStream.of(rows).mapToObj(view.getData()::get)
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void countQueries() {
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        DataProvider<Bean, ?> original = grid.getDataProvider();
+        QueryCounter counter = test(grid).countQueries();
+        assertSame(counter, test(grid).countQueries());
+
+        counter.assertAtMost(2, () -> {
+            for (int i = 0; i < test(grid).size(); i++) {
+                test(grid).item(i);
+            }
+        });
+        assertEquals(1, counter.getCount(QueryType.FETCH));
+        assertEquals(1, counter.getCount(QueryType.SIZE));
+        assertEquals(0, counter.getQueries().get(0).getOffset());
+
+        int err = 0;
+        try {
+            counter.assertAtMost(0, () -> test(grid).stream(3).count());
+        } catch (AssertionError e) {
+            err++;
+            assertTrue(e.getMessage().contains("FETCH[offset=9, limit=3]"));
+        }
+        assertEquals(1, err);
+
+        test(grid).restoreDataProvider();
+        assertSame(original, grid.getDataProvider());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void componentCellsAreCached() {
+        Grid<Bean> grid = $(Grid.class).single();
+        test($(RadioButtonGroup.class).caption("Mode").first())
+                .clickItem(SelectionMode.SINGLE);
+
+        HorizontalLayout first = (HorizontalLayout) test(grid).cell(1, 0);
+        HorizontalLayout second = (HorizontalLayout) test(grid).cell(1, 1);
+        assertSame(first, test(grid).cell(1, 0));
+        assertSame(grid, first.getParent());
+        int components = $(HorizontalLayout.class).size();
+
+        for (int i = 0; i < 10; i++) {
+            test(grid).cell(1, 0);
+        }
+        assertEquals(components, $(HorizontalLayout.class).size());
+
+        // Refresh of one item regenerates only its component
+        test($(first, Button.class).single()).click();
+        assertEquals(null, first.getParent());
+        assertSame(second, test(grid).cell(1, 1));
+        HorizontalLayout regenerated = (HorizontalLayout) test(grid).cell(1,
+                0);
+        assertTrue(regenerated != first);
+        assertSame(grid, regenerated.getParent());
+
+        grid.getDataProvider().refreshAll();
+        assertEquals(null, regenerated.getParent());
+        assertEquals(null, second.getParent());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void releaseRowCaches() {
+        Grid<Bean> grid = $(Grid.class).single();
+        HorizontalLayout cell = (HorizontalLayout) test(grid).cell(1, 0);
+        assertSame(grid, cell.getParent());
+
+        GridTester.releaseRowCaches();
+        assertEquals(null, cell.getParent());
+        // Changes of the DataProvider no longer reach the released cache
+        grid.getDataProvider().refreshAll();
+        HorizontalLayout regenerated = (HorizontalLayout) test(grid).cell(1,
+                0);
+        assertSame(regenerated, test(grid).cell(1, 0));
+    }
+
+    @Test
+    public void simulateScrolling() {
+        @SuppressWarnings("unchecked")
+        Grid<Bean> grid = $(Grid.class).single();
+        grid.setDataProvider(DataProvider.fromCallbacks(
+                query -> IntStream
+                        .range(query.getOffset(),
+                                Math.min(1000,
+                                        query.getOffset() + query.getLimit()))
+                        .mapToObj(i -> new Bean(i, "Value " + i)),
+                query -> 1000));
+
+        GridScrollSimulation<Bean> simulation = test(grid)
+                .simulateScrolling(test(grid).countQueries(), 20);
+        ScrollStep first = simulation.scrollTo(0);
+        assertEquals(1000, simulation.getSize());
+        assertEquals(40, first.getRequestedRows());
+        assertEquals(40, simulation.getCachedRowCount());
+        assertEquals(1, first.getQueries().stream()
+                .filter(query -> query.getType() == QueryType.SIZE).count());
+
+        List<ScrollStep> steps = simulation.scrollThrough(10);
+        assertEquals(980, steps.get(steps.size() - 1).getFirstVisibleRow());
+        assertTrue(steps.stream().allMatch(step -> step.getQueries().stream()
+                .filter(query -> query.getType() == QueryType.FETCH)
+                .count() <= 1));
+        // Rows leaving the client cache are released on the server
+        simulation.assertActiveItemsAtMost(80);
+        simulation.assertKeyMapperAtMost(80);
+        assertEquals(-1, simulation.getActiveItemsSerializedSize());
+
+        int err = 0;
+        try {
+            simulation.assertActiveItemsAtMost(10);
+        } catch (AssertionError e) {
+            err++;
+        }
+        assertEquals(1, err);
+    }
+
+    @Test
+    public void activeItemsSerializedSize() {
+        Grid<String> grid = new Grid<>();
+        grid.addColumn(item -> item).setCaption("Item");
+        grid.setDataProvider(DataProvider.fromCallbacks(
+                query -> IntStream
+                        .range(query.getOffset(),
+                                Math.min(1000,
+                                        query.getOffset() + query.getLimit()))
+                        .mapToObj(i -> "Item " + i),
+                query -> 1000));
+        ((VerticalLayout) ui.getContent()).addComponent(grid);
+
+        GridScrollSimulation<String> simulation = test(grid)
+                .simulateScrolling(test(grid).countQueries(), 20);
+        simulation.scrollTo(0);
+        long top = simulation.getActiveItemsSerializedSize();
+        assertTrue(top > 0);
+
+        // The active range grows from 40 rows to 60 rows of longer items
+        simulation.scrollTo(500);
+        long middle = simulation.getActiveItemsSerializedSize();
+        assertTrue(middle > top);
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.testbench.uiunittest.TestUI;
+import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.metrics.TimingMetrics;
+import com.vaadin.testbench.uiunittest.views.ButtonTestView;
+import com.vaadin.ui.Button;
+
+public class MetricsTest extends UIUnitTest {
+
+    private static final TimingMetrics SUITE = new TimingMetrics();
+
+    private TimingMetrics metrics;
+
+    @Before
+    public void setup() throws ServiceException {
+        metrics = new TimingMetrics(SUITE);
+        setMetricsListener(metrics);
+        mockVaadin(new TestUI());
+    }
+
+    @After
+    public void cleanup() {
+        tearDown();
+        assertNull(getMetricsListener());
+        assertEquals(1, metrics.getCount("tearDown"));
+    }
+
+    @Test
+    public void phasesAreRecorded() {
+        assertSame(metrics, getMetricsListener());
+        navigate(ButtonTestView.NAME, ButtonTestView.class);
+        test($(Button.class).id("normal")).click();
+
+        assertEquals(1, metrics.getCount("mockVaadin"));
+        assertEquals(1, metrics.getCount("navigate"));
+        assertEquals(1, metrics.getCount("query"));
+        assertEquals(1, metrics.getCount("ButtonTester.click"));
+        // Click focuses the button first
+        assertEquals(1, metrics.getCount("ButtonTester.focus"));
+        assertTrue(metrics.getTotalNanos("navigate") > 0);
+        assertTrue(metrics.getMaxNanos("navigate") <= metrics
+                .getTotalNanos("navigate"));
+        assertTrue(SUITE.getCount("ButtonTester.click") >= 1);
+
+        String json = metrics.toJson();
+        assertTrue(json.startsWith("{\"phases\":{\"ButtonTester.click\":"));
+        assertTrue(json.contains("\"navigate\":{\"count\":1,\"totalNanos\":"));
+    }
+}
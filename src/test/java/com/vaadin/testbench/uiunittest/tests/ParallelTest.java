@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.testbench.uiunittest.TestUI;
+import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.views.GridTestView;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+public class ParallelTest {
+
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void concurrentTestsAreIsolated() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Object> instances = Collections
+                .synchronizedSet(Collections.newSetFromMap(
+                        new IdentityHashMap<>()));
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int worker = i;
+                results.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        // Every third test leaves its environment behind
+                        new IsolatedTest(worker + "-" + j, j % 3 != 0)
+                                .run(instances);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // Service, session and UI of each test were distinct
+        assertEquals(3 * threads * ITERATIONS, instances.size());
+    }
+
+    public static class IsolatedTest extends UIUnitTest {
+        private final String name;
+        private final boolean tearDown;
+
+        IsolatedTest(String name, boolean tearDown) {
+            this.name = name;
+            this.tearDown = tearDown;
+        }
+
+        @SuppressWarnings("unchecked")
+        void run(Set<Object> instances) throws ServiceException {
+            TestUI ui = new TestUI();
+            mockVaadin(ui);
+            assertSame(ui, UI.getCurrent());
+            VaadinSession session = VaadinSession.getCurrent();
+            assertSame(session, ui.getSession());
+            // A session left behind by the previous test is not reused
+            assertEquals(1, session.getUIs().size());
+            instances.add(VaadinService.getCurrent());
+            instances.add(session);
+            instances.add(ui);
+
+            Label label = new Label(name);
+            ((VerticalLayout) ui.getContent()).addComponent(label);
+            assertSame(label, $(Label.class).last());
+            assertEquals(name, $(Label.class).last().getValue());
+
+            navigate(GridTestView.NAME, GridTestView.class);
+            Grid<Object> grid = $(Grid.class).single();
+            assertEquals(grid.getDataCommunicator().getDataProviderSize(),
+                    test(grid).size());
+            assertSame(ui, UI.getCurrent());
+            assertSame(session, VaadinSession.getCurrent());
+            if (tearDown) {
+                tearDown();
+            }
+        }
+    }
+}
@@ -12,6 +12,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -28,12 +36,13 @@ import com.vaadin.ui.themes.ValoTheme;
 public class PushTest extends UIUnitTest {
 
     private TestUI ui;
+    private PushTestView view;
 
     @Before
     public void setup() throws ServiceException {
         ui = new TestUI();
         mockVaadin(ui);
-        navigate(PushTestView.NAME, PushTestView.class);
+        view = navigate(PushTestView.NAME, PushTestView.class);
     }
 
     @After
@@ -101,4 +110,65 @@ public class PushTest extends UIUnitTest {
         assertFalse(label.getStyleName().contains(ValoTheme.LABEL_SPINNER));
     }
 
+    @Test
+    public void waitUntilEndsWhenAccessTaskHasRun()
+            throws InterruptedException {
+        Label label = $(Label.class).id("push-label");
+        CountDownLatch waiting = new CountDownLatch(1);
+        AtomicInteger evaluations = new AtomicInteger();
+        Thread thread = new Thread(() -> {
+            try {
+                // The condition has been evaluated once before waiting
+                waiting.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ui.access(() -> label.setValue("Done"));
+        });
+        thread.start();
+        waitUntil(() -> {
+            evaluations.incrementAndGet();
+            waiting.countDown();
+            return "Done".equals(label.getValue());
+        });
+        thread.join();
+        assertEquals("Done", label.getValue());
+        // Evaluated before waiting and after the access task, other releases
+        // of the session lock may add a few evaluations, but not polling
+        assertTrue(evaluations.get() >= 2);
+        assertTrue(evaluations.get() <= 5);
+    }
+
+    @Test
+    public void advanceTimeForPush() {
+        view.setScheduler(getVirtualTimeScheduler());
+        Label label = $(Label.class).id("push-label");
+        Button button = $(Button.class).id("spin-button");
+        test(button).click();
+        advanceTime(Duration.ofMillis(1999));
+        assertTrue(label.getStyleName().contains(ValoTheme.LABEL_SPINNER));
+        assertFalse(button.isEnabled());
+        advanceTime(Duration.ofMillis(1));
+        assertEquals("Hello", label.getValue());
+        assertTrue(button.isEnabled());
+        assertFalse(label.getStyleName().contains(ValoTheme.LABEL_SPINNER));
+    }
+
+    @Test
+    public void advanceTimeRunsTasksInOrder() {
+        Instant start = Instant.now(getVirtualClock());
+        List<String> log = new ArrayList<>();
+        getVirtualTimeScheduler().scheduleAtFixedRate(
+                () -> log.add("tick " + Duration
+                        .between(start, Instant.now(getVirtualClock()))
+                        .getSeconds()),
+                1, 1, TimeUnit.SECONDS);
+        getVirtualTimeScheduler().schedule(() -> log.add("once"), 2,
+                TimeUnit.SECONDS);
+        getVirtualTimeScheduler().execute(() -> log.add("now"));
+        advanceTime(Duration.ofSeconds(3));
+        assertEquals("[now, tick 1, tick 2, once, tick 3]", log.toString());
+        assertEquals(Duration.ofSeconds(3),
+                Duration.between(start, Instant.now(getVirtualClock())));
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.testbench.uiunittest.TestUI;
+import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.mocks.MockDeploymentConfiguration;
+import com.vaadin.testbench.uiunittest.views.GridTestView;
+import com.vaadin.ui.Label;
+
+public class ServiceReuseTest extends UIUnitTest {
+
+    private TestUI ui;
+
+    @Override
+    protected boolean isServiceReused() {
+        return true;
+    }
+
+    @Before
+    public void setup() throws ServiceException {
+        ui = new TestUI();
+        mockVaadin(ui);
+    }
+
+    @After
+    public void cleanup() {
+        tearDown();
+    }
+
+    @Test
+    public void serviceIsReusedAndReset() throws ServiceException {
+        VaadinService service = VaadinService.getCurrent();
+        VaadinSession session = VaadinSession.getCurrent();
+        MockDeploymentConfiguration configuration = (MockDeploymentConfiguration) service
+                .getDeploymentConfiguration();
+        configuration.setProductionMode(true);
+        configuration.setInitParameter("test", "value");
+        navigate(GridTestView.NAME, GridTestView.class);
+
+        tearDown();
+        ui = new TestUI();
+        mockVaadin(ui);
+
+        assertSame(service, VaadinService.getCurrent());
+        assertNotSame(session, VaadinSession.getCurrent());
+        assertFalse(configuration.isProductionMode());
+        assertTrue(configuration.getInitParameters().isEmpty());
+        assertEquals("Menu", $(Label.class).id("menu").getValue());
+    }
+
+    @Test
+    public void configurationResetRestoresDefaults() {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setProductionMode(true);
+        configuration.setXsrfProtectionEnabled(false);
+        configuration.setResourceCacheTime(1);
+        configuration.setHeartbeatInterval(1);
+        configuration.setCloseIdleSessions(true);
+        configuration.setPushMode(PushMode.AUTOMATIC);
+        configuration.setInitParameter("test", "value");
+        configuration.setApplicationOrSystemProperty("test", "value");
+        configuration.setSyncIdCheckEnabled(false);
+
+        configuration.reset();
+
+        MockDeploymentConfiguration defaults = new MockDeploymentConfiguration();
+        assertEquals(defaults.isProductionMode(),
+                configuration.isProductionMode());
+        assertEquals(defaults.isXsrfProtectionEnabled(),
+                configuration.isXsrfProtectionEnabled());
+        assertEquals(defaults.getResourceCacheTime(),
+                configuration.getResourceCacheTime());
+        assertEquals(defaults.getHeartbeatInterval(),
+                configuration.getHeartbeatInterval());
+        assertEquals(defaults.isCloseIdleSessions(),
+                configuration.isCloseIdleSessions());
+        assertEquals(defaults.getPushMode(), configuration.getPushMode());
+        assertEquals(defaults.getInitParameters(),
+                configuration.getInitParameters());
+        assertEquals(defaults.getApplicationOrSystemProperty("test", null),
+                configuration.getApplicationOrSystemProperty("test", null));
+        assertEquals(defaults.isSyncIdCheckEnabled(),
+                configuration.isSyncIdCheckEnabled());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.testbench.uiunittest.DefaultView;
+import com.vaadin.testbench.uiunittest.SessionRoundTrip;
+import com.vaadin.testbench.uiunittest.TestUI;
+import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.testers.AbstractFieldTester;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+
+public class SessionRoundTripTest extends UIUnitTest {
+
+    private TestUI ui;
+    private DefaultView view;
+
+    @Before
+    public void setup() throws ServiceException {
+        ui = new TestUI();
+        mockVaadin(ui);
+        view = navigate("", DefaultView.class);
+    }
+
+    @After
+    public void cleanup() {
+        tearDown();
+    }
+
+    @Test
+    public void sessionIsReplacedAfterEachAction() {
+        TextField field = new TextField();
+        Label result = new Label();
+        result.setId("result");
+        Button button = new Button("Copy",
+                e -> result.setValue(field.getValue()));
+        view.addComponents(field, button, result);
+
+        enableSessionRoundTrip();
+        test(field).setValue("Hello");
+        assertNotSame(ui, UI.getCurrent());
+        assertSame(VaadinSession.getCurrent(), UI.getCurrent().getSession());
+        assertTrue(VaadinSession.getCurrent().hasLock());
+
+        // The button is resolved to its copy in the current UI
+        test(button).click();
+        assertEquals("Hello", $(Label.class).id("result").getValue());
+        assertEquals("", result.getValue());
+
+        List<SessionRoundTrip> roundTrips = getSessionRoundTrips();
+        assertEquals(2, roundTrips.size());
+        assertEquals("AbstractFieldTester.setValue",
+                roundTrips.get(0).getAction());
+        assertEquals("ButtonTester.click", roundTrips.get(1).getAction());
+        assertTrue(roundTrips.get(1).getBytes() > 0);
+        assertTrue(roundTrips.get(1).getNanos() > 0);
+
+        disableSessionRoundTrip();
+        UI current = UI.getCurrent();
+        test($(Button.class).caption("Copy").single()).click();
+        assertSame(current, UI.getCurrent());
+        assertEquals(2, getSessionRoundTrips().size());
+    }
+
+    @Test
+    public void onlyCompletedInteractionsRoundTrip() {
+        TextField field = new TextField();
+        Button button = new Button("Disabled");
+        button.setEnabled(false);
+        view.addComponents(field, button);
+
+        enableSessionRoundTrip();
+        test(field).isInvalid();
+        test(field).errorMessage();
+        test(field).isFocused();
+        assertSame(ui, UI.getCurrent());
+
+        boolean failed = false;
+        try {
+            test(button).click();
+        } catch (AssertionError e) {
+            failed = true;
+        }
+        assertTrue(failed);
+        assertSame(ui, UI.getCurrent());
+        assertTrue(getSessionRoundTrips().isEmpty());
+    }
+
+    @Test
+    public void testerUsesCurrentCopy() {
+        TextField field = new TextField();
+        view.addComponent(field);
+
+        enableSessionRoundTrip();
+        AbstractFieldTester<String> tester = test(field);
+        tester.setValue("Hello");
+        tester.setValue("World");
+        assertEquals(2, getSessionRoundTrips().size());
+        assertEquals("World", $(TextField.class).single().getValue());
+        assertEquals("", field.getValue());
+    }
+
+    @Test
+    public void replacedSessionIsReleased() {
+        TextField field = new TextField();
+        view.addComponent(field);
+        VaadinSession replaced = VaadinSession.getCurrent();
+
+        enableSessionRoundTrip();
+        test(field).setValue("Hello");
+        assertNotSame(replaced, VaadinSession.getCurrent());
+        assertFalse(replaced.hasLock());
+        assertTrue(ui.isClosing());
+        assertTrue(VaadinSession.getCurrent().hasLock());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2000-2024 Vaadin Ltd
+ *
+ * This program is available under Vaadin Commercial License and Service Terms.
+ *
+ * See <https://vaadin.com/commercial-license-and-service-terms> for the full
+ * license.
+ */
+package com.vaadin.testbench.uiunittest.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.testbench.uiunittest.DefaultView;
+import com.vaadin.testbench.uiunittest.TestUI;
+import com.vaadin.testbench.uiunittest.UISnapshot;
+import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.views.GridTestView;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class SnapshotTest extends UIUnitTest {
+
+    // Guarded by the class, test methods may run in parallel
+    private static UISnapshot snapshot;
+    private static UI capturedUI;
+
+    private UI ui;
+
+    @Before
+    public void setup() throws ServiceException {
+        UISnapshot shared;
+        synchronized (SnapshotTest.class) {
+            if (snapshot == null) {
+                ui = new TestUI();
+                mockVaadin(ui);
+                navigate("", DefaultView.class);
+                capturedUI = ui;
+                snapshot = takeSnapshot();
+                return;
+            }
+            shared = snapshot;
+        }
+        ui = restoreSnapshot(shared);
+    }
+
+    @After
+    public void cleanup() {
+        tearDown();
+    }
+
+    @Test
+    public void restoredUIIsCurrent() {
+        assertSame(ui, UI.getCurrent());
+        assertSame(VaadinSession.getCurrent(), ui.getSession());
+        assertTrue(VaadinSession.getCurrent().hasLock());
+        assertTrue(ui.getNavigator()
+                .getCurrentView() instanceof DefaultView);
+    }
+
+    @Test
+    public void restoredCopiesAreIndependent_first() {
+        changeMenu();
+    }
+
+    @Test
+    public void restoredCopiesAreIndependent_second() {
+        changeMenu();
+    }
+
+    private void changeMenu() {
+        UI captured;
+        synchronized (SnapshotTest.class) {
+            captured = capturedUI;
+        }
+        if (ui != captured) {
+            assertNotSame(captured.getSession(), ui.getSession());
+        }
+        Label menu = $(Label.class).id("menu");
+        assertEquals("Menu", menu.getValue());
+        menu.setValue("Changed");
+        test($(Button.class).caption(GridTestView.NAME).first()).click();
+        assertTrue(ui.getNavigator()
+                .getCurrentView() instanceof GridTestView);
+    }
+}
@@ -9,14 +9,23 @@
 package com.vaadin.testbench.uiunittest.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vaadin.data.provider.TreeDataProvider;
 import com.vaadin.server.ServiceException;
 import com.vaadin.testbench.uiunittest.TestUI;
 import com.vaadin.testbench.uiunittest.UIUnitTest;
+import com.vaadin.testbench.uiunittest.testers.CountingHierarchicalDataProvider;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter;
+import com.vaadin.testbench.uiunittest.testers.QueryCounter.QueryType;
 import com.vaadin.testbench.uiunittest.views.TreeGridTestView;
 import com.vaadin.testbench.uiunittest.views.TreeGridTestView.Department;
 import com.vaadin.ui.Button;
@@ -73,4 +82,71 @@ public class TreeGridTest extends UIUnitTest {
         }
         assertEquals(1, err);
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void expandRecursivelyAndCollapseAll() {
+        TreeGrid<Department> grid = $(TreeGrid.class).first();
+        List<Department> roots = view.getData().getRootDepartments();
+        assertEquals(roots, test(grid).visibleItems());
+
+        test(grid).expandRecursively(roots, 2);
+        assertEquals(view.getData().getDepartments(),
+                test(grid).visibleItems());
+        assertEquals(4, $(Notification.class).stream()
+                .filter(n -> n.getCaption().startsWith("Expanded")).count());
+
+        test(grid).collapseAll();
+        assertEquals(roots, test(grid).visibleItems());
+        assertEquals("Collapsed Product Development",
+                $(Notification.class).get(4).getCaption());
+
+        List<Department> visible = test(grid).visibleItems();
+        test(grid).expandRecursively(roots, 0);
+        assertEquals(13, test(grid).visibleItems().size());
+        // Lists returned earlier are not affected by the changes
+        assertEquals(roots, visible);
+        assertFalse(grid.isExpanded(view.getData().getDepartments().get(1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void expandRecursivelyUsesCommunicatorFilter() {
+        TreeGrid<Department> grid = $(TreeGrid.class).first();
+        TreeDataProvider<Department> dataProvider = (TreeDataProvider<Department>) grid
+                .getDataProvider();
+        grid.getDataCommunicator().setDataProvider(dataProvider,
+                department -> !department.getName().startsWith("Flow"));
+        Department flow = view.getData().getDepartments().get(1);
+
+        test(grid).expandRecursively(view.getData().getRootDepartments(), 2);
+        assertFalse(grid.isExpanded(flow));
+        assertEquals(3, $(Notification.class).stream()
+                .filter(n -> n.getCaption().startsWith("Expanded")).count());
+        assertEquals(12, test(grid).visibleItems().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void countQueries() {
+        TreeGrid<Department> grid = $(TreeGrid.class).first();
+        QueryCounter counter = test(grid).countQueries();
+        assertSame(counter, test(grid).countQueries());
+        assertTrue(grid
+                .getDataProvider() instanceof CountingHierarchicalDataProvider);
+        counter.reset();
+
+        test(grid).expandRecursively(view.getData().getRootDepartments(), 2);
+        assertTrue(counter.getCount(QueryType.HAS_CHILDREN) > 0);
+        // Children of the expanded items
+        assertEquals(4, counter.getCount(QueryType.FETCH_CHILDREN));
+
+        counter.reset();
+        assertEquals(15, test(grid).visibleItems().size());
+        assertTrue(counter.getCount(QueryType.FETCH_CHILDREN) > 0);
+
+        test(grid).restoreDataProvider();
+        assertEquals(view.getData().getRootDepartments(),
+                grid.getTreeData().getRootItems());
+    }
+}
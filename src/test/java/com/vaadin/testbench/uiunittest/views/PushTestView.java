@@ -9,8 +9,9 @@
 package com.vaadin.testbench.uiunittest.views;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.vaadin.testbench.uiunittest.TestView;
 import com.vaadin.ui.Button;
@@ -22,8 +23,16 @@ import com.vaadin.ui.themes.ValoTheme;
 public class PushTestView extends TestView {
     public static final String NAME = "push";
 
-    private final ExecutorService executor = Executors.newCachedThreadPool();
-    
+    // Shared by the view instances, daemon thread does not keep the JVM alive
+    private static final ScheduledExecutorService SHARED_SCHEDULER = Executors
+            .newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PushTestView");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private ScheduledExecutorService scheduler = SHARED_SCHEDULER;
+
     @Override
     public String getName() {
         return NAME;
@@ -53,14 +62,14 @@ public class PushTestView extends TestView {
         return layout;
     }
 
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
     private CompletableFuture<String> getStringWithDelay() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            return "Hello";
-        }, executor);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        scheduler.schedule(() -> future.complete("Hello"), 2,
+                TimeUnit.SECONDS);
+        return future;
     }
 }